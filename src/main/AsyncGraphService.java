@@ -0,0 +1,141 @@
+package main;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Class AsyncGraphService - asynchronous facade over a single LWWElementGraph instance
+ * Every operation returns a CompletableFuture and runs on the service executor, so callers
+ * never block their own threads on graph traversals such as findPath
+ * As LWWElementGraph itself is not thread-safe (every write updates shared state, such as
+ * running hashes and the label dictionary), operations are guarded by a single global
+ * read/write lock: writes are fully serialized, while reads run concurrently with each other
+ * No ordering between writes is needed, as LWW operations commute
+ * Tiered storage of the graph (see main.LWWElementGraph#enableColdStorage) should be enabled
+ * or disabled before the graph is served, and not changed while the service is in use
+ */
+public class AsyncGraphService implements AutoCloseable {
+
+    private final LWWElementGraph graph;
+
+    private final ExecutorService executor;
+
+    // whether the executor was created by this service (and has to be shut down by it)
+    private final boolean ownsExecutor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // whether reads take the write lock: with cold storage enabled, reads load and evict
+    // elements, i.e. modify the graph; fixed when the service is created
+    private final boolean exclusiveReads;
+
+    /**
+     * Creates a service running on virtual threads if the runtime supports them (Java 21+),
+     * otherwise on a cached pool of platform threads
+     * @param graph Graph to be served
+     */
+    public AsyncGraphService(LWWElementGraph graph){
+        this(graph, defaultExecutor(), true);
+    }
+
+    /**
+     * Creates a service running on a given executor; the executor is not shut down by the service
+     * @param graph Graph to be served
+     * @param executor Executor to run graph operations on
+     */
+    public AsyncGraphService(LWWElementGraph graph, ExecutorService executor){
+        this(graph, executor, false);
+    }
+
+    private AsyncGraphService(LWWElementGraph graph, ExecutorService executor, boolean ownsExecutor){
+        this.graph = graph;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.exclusiveReads = graph.isColdStorageEnabled();
+    }
+
+    public CompletableFuture<Void> addVertex(String label, long timestamp){
+        return submitWrite(() -> graph.addVertex(label, timestamp));
+    }
+
+    public CompletableFuture<Void> removeVertex(String label, long timestamp){
+        return submitWrite(() -> graph.removeVertex(label, timestamp));
+    }
+
+    public CompletableFuture<Void> addEdge(String srcLabel, String dstLabel, long timestamp){
+        return submitWrite(() -> graph.addEdge(srcLabel, dstLabel, timestamp));
+    }
+
+    public CompletableFuture<Void> removeEdge(String srcLabel, String dstLabel, long timestamp){
+        return submitWrite(() -> graph.removeEdge(srcLabel, dstLabel, timestamp));
+    }
+
+    public CompletableFuture<Boolean> checkVertexExists(String label){
+        return submitRead(() -> graph.checkVertexExists(label));
+    }
+
+    public CompletableFuture<List<String>> getAdjacentVertices(String srcLabel){
+        return submitRead(() -> graph.getAdjacentVertices(srcLabel));
+    }
+
+    public CompletableFuture<List<String>> findPath(String srcLabel, String dstLabel){
+        return submitRead(() -> graph.findPath(srcLabel, dstLabel));
+    }
+
+    /**
+     * Merges another graph into the served graph
+     * The other graph should not be modified until the returned future completes
+     * @param other Other graph to be merged with
+     */
+    public CompletableFuture<Void> merge(LWWElementGraph other){
+        return submitWrite(() -> graph.merge(other));
+    }
+
+    private CompletableFuture<Void> submitWrite(Runnable write){
+        return CompletableFuture.runAsync(() -> {
+            lock.writeLock().lock();
+            try {
+                write.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }, executor);
+    }
+
+    private <T> CompletableFuture<T> submitRead(Supplier<T> read){
+        return CompletableFuture.supplyAsync(() -> {
+            Lock readLock = exclusiveReads ? lock.writeLock() : lock.readLock();
+            readLock.lock();
+            try {
+                return read.get();
+            } finally {
+                readLock.unlock();
+            }
+        }, executor);
+    }
+
+    /**
+     * Obtain a virtual-thread-per-task executor when running on Java 21+
+     * Looked up reflectively, so the service still runs on older runtimes
+     * @return Executor to be used by default
+     */
+    private static ExecutorService defaultExecutor(){
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    @Override
+    public void close(){
+        if(ownsExecutor)
+            executor.shutdown();
+    }
+}
@@ -0,0 +1,163 @@
+package main;
+
+import main.storage.ElementCodec;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Class GraphContainer - hosts many small graphs (tenants), identified by tenant IDs
+ * Instead of a separate main.LWWElementGraph per tenant, elements of all tenants are kept in
+ * two shared graphs (one for directed and one for undirected tenants), under labels prefixed
+ * with tenant IDs; each tenant is accessed through a main.TenantGraph view
+ * Since tenants share the graphs, merges, snapshots and serialization of the container
+ * go through all tenants at once
+ */
+public class GraphContainer {
+
+    // separates tenant ID from a label in the shared graphs; tenant IDs can't contain it,
+    // so labels of a tenant form a contiguous range in sorted order, and a scope of the
+    // shared graph with its own reachability index (see main.LWWElementGraph#SCOPE_SEPARATOR)
+    private static final char SEPARATOR = LWWElementGraph.SCOPE_SEPARATOR;
+
+    private final LWWElementGraph directedGraph = new LWWElementGraph(true);
+    private final LWWElementGraph undirectedGraph = new LWWElementGraph(false);
+
+    // tenants contains <tenant ID, tenant view> key-value pairs
+    private final Map<String, TenantGraph> tenants = new HashMap<>();
+
+    public GraphContainer(){
+        // Makes per-tenant scans and snapshots go through labels of a single tenant only
+        directedGraph.enableLabelIndex();
+        undirectedGraph.enableLabelIndex();
+    }
+
+    /**
+     * Obtain a tenant's graph, creating an empty one if there is no such tenant
+     * @param tenantId Tenant ID, should not contain '\0'
+     * @param directed Whether the tenant's graph is directed
+     * @return View of the tenant's graph, or null if the tenant exists with other directedness
+     */
+    public TenantGraph createTenant(String tenantId, boolean directed){
+        if(LWWElementGraph.isBlank(tenantId) || tenantId.indexOf(SEPARATOR) >= 0){
+            System.err.println("Tenant ID provided to create a tenant is not valid.");
+            return null;
+        }
+        TenantGraph tenant = tenants.get(tenantId);
+        if(tenant == null){
+            tenant = new TenantGraph(tenantId, directed ? directedGraph : undirectedGraph);
+            tenants.put(tenantId, tenant);
+        } else if(tenant.isDirected() != directed){
+            System.err.println("Tenant " + tenantId + " already exists with other directedness.");
+            return null;
+        }
+        return tenant;
+    }
+
+    /**
+     * Obtain a tenant's graph
+     * @param tenantId Tenant ID
+     * @return View of the tenant's graph, or null if there is no such tenant
+     */
+    public TenantGraph getTenant(String tenantId){
+        return tenants.get(tenantId);
+    }
+
+    public Set<String> getTenantIds(){
+        return Collections.unmodifiableSet(tenants.keySet());
+    }
+
+    public int getTenantCount(){
+        return tenants.size();
+    }
+
+    /**
+     * Merges all tenants of another container into this container, in a single pass over
+     * each of its shared graphs; tenants missing in this container are created
+     * Nothing is merged if a tenant exists in both containers with different directedness
+     * @param other Other container to be merged with
+     */
+    public void merge(GraphContainer other){
+        for(TenantGraph tenant: other.tenants.values()){
+            TenantGraph thisTenant = tenants.get(tenant.getTenantId());
+            if(thisTenant != null && thisTenant.isDirected() != tenant.isDirected()){
+                System.err.println("Cannot merge tenant " + tenant.getTenantId() + " with other directedness.");
+                return;
+            }
+        }
+        for(TenantGraph tenant: other.tenants.values()){
+            createTenant(tenant.getTenantId(), tenant.isDirected());
+        }
+        directedGraph.merge(other.directedGraph);
+        undirectedGraph.merge(other.undirectedGraph);
+    }
+
+    /**
+     * Obtain a snapshot of all tenants
+     * @return New container containing deep copies of all elements of all tenants
+     */
+    public GraphContainer snapshot(){
+        GraphContainer result = new GraphContainer();
+        result.merge(this);
+        return result;
+    }
+
+    /**
+     * Writes all tenants to a single file
+     * @param file File to write to
+     * @throws IOException If writing fails
+     */
+    public void save(Path file) throws IOException {
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))){
+            out.writeInt(tenants.size());
+            for(TenantGraph tenant: tenants.values()){
+                ElementCodec.writeString(out, tenant.getTenantId());
+                out.writeBoolean(tenant.isDirected());
+            }
+            directedGraph.writeTo(out);
+            undirectedGraph.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads all tenants written by main.GraphContainer#save
+     * @param file File to read from
+     * @return New container
+     * @throws IOException If reading fails
+     */
+    public static GraphContainer load(Path file) throws IOException {
+        GraphContainer result = new GraphContainer();
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            int count = in.readInt();
+            for(int i = 0; i < count; i++){
+                String tenantId = ElementCodec.readString(in);
+                result.createTenant(tenantId, in.readBoolean());
+            }
+            result.directedGraph.readFrom(in);
+            result.undirectedGraph.readFrom(in);
+        }
+        return result;
+    }
+
+    static String prefixOf(String tenantId){
+        return tenantId + SEPARATOR;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        GraphContainer that = (GraphContainer) o;
+        return tenants.keySet().equals(that.tenants.keySet()) &&
+                directedGraph.equals(that.directedGraph) && undirectedGraph.equals(that.undirectedGraph);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = tenants.keySet().hashCode();
+        result = 31 * result + directedGraph.hashCode();
+        return 31 * result + undirectedGraph.hashCode();
+    }
+}
@@ -1,10 +1,24 @@
 package main;
 
+import main.model.AdjacencyRow;
+import main.model.ChangeListener;
+import main.model.ChangeSet;
 import main.model.Edge;
+import main.model.LabelDictionary;
+import main.model.LabelFilter;
 import main.model.Vertex;
+import main.model.WeightedEdge;
 import main.model.Operation;
+import main.storage.ColdStorage;
+import main.storage.ElementCodec;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 import static main.model.Operation.CREATE;
 import static main.model.Operation.REMOVE;
@@ -19,27 +33,112 @@ import static main.model.Operation.REMOVE;
 public class LWWElementGraph {
 
     // vertexMap contains <vertex label, vertex> key-value pairs
-    private final Map<String, Vertex> vertexMap = new HashMap<>();
+    private final Map<String, Vertex> vertexMap;
 
     // edgeMap contains <source vertex label, <destination vertex label, associated Edge>>
     // key-value pairs; this map will serve as a kind of `adjacency Add/Remove set`
-    private final Map<String, Map<String, Edge>> edgeMap = new HashMap<>();
+    private final Map<String, AdjacencyRow> edgeMap;
+
+    // labels contains canonical instances of all labels used as keys in vertexMap/edgeMap,
+    // so that vertices, edges and map keys share a single instance of every label
+    private final LabelDictionary labels = new LabelDictionary();
 
     // whether this graph is directed or not
     private final boolean directed;
 
+    // Running order-independent hashes of the graph: sums of hash codes of all vertices in
+    // vertexMap and all edges in edgeMap, maintained on every change of an element,
+    // so that hashCode() doesn't need to go through the whole graph
+    private int vertexHash;
+    private int edgeHash;
+
+    // total number of vertices and edges in the graph (including removed ones)
+    private int vertexCount;
+    private int edgeCount;
+
+    // labelIndex contains all labels of vertexMap/edgeMap in sorted order, to support prefix
+    // and range scans; null if the index is not enabled
+    private TreeSet<String> labelIndex;
+
+    // coldStorage keeps vertices and rows of edges evicted from vertexMap/edgeMap on disk;
+    // null if tiered storage is not enabled, in which case all elements are kept in memory
+    private ColdStorage coldStorage;
+
+    // separates the scope of a label from the rest of it: a label containing it belongs to
+    // the scope made of all labels sharing its part up to (and including) the first separator
+    static final char SCOPE_SEPARATOR = '\0';
+
+    // reachability contains <scope, reachability index> key-value pairs: "" for the index of
+    // the whole graph, and scopes (see main.LWWElementGraph#scopeOf) for indexes of their labels
+    // only; each index is built on the first query, updated as vertices and edges are added,
+    // and discarded on other changes within its scope
+    private final Map<String, ReachabilityIndex> reachability = new HashMap<>();
+
     public LWWElementGraph(){
-        directed = false;
+        this(false);
     }
 
     public LWWElementGraph(boolean directed){
+        this(directed, 0);
+    }
+
+    /**
+     * Creates a graph with internal maps sized upfront, to avoid rehashing while it's filled
+     * @param directed Whether the graph is directed
+     * @param expectedVertices Expected number of vertices
+     */
+    public LWWElementGraph(boolean directed, int expectedVertices){
         this.directed = directed;
+        // HashMap is resized once it's 3/4 full
+        int capacity = (int) Math.min(1 << 30, (long) (expectedVertices / 0.75) + 1);
+        vertexMap = expectedVertices > 0 ? new HashMap<>(capacity) : new HashMap<>();
+        edgeMap = expectedVertices > 0 ? new HashMap<>(capacity) : new HashMap<>();
     }
 
     public boolean isDirected() {
         return directed;
     }
 
+    /**
+     * Obtain number of vertices recorded in the graph, including removed ones
+     */
+    public int getVertexCount(){
+        return vertexCount;
+    }
+
+    /**
+     * Obtain number of edges recorded in the graph, including removed ones
+     * (for undirected graphs, src->dst and dst->src edges are counted separately)
+     */
+    public int getEdgeCount(){
+        return edgeCount;
+    }
+
+    /**
+     * Obtain number of vertices and edges which are not active, i.e. serve only as tombstones
+     * Goes through the whole graph
+     */
+    public int getTombstoneCount(){
+        int tombstones = 0;
+        for(String label: labelsOf(vertexMap)){
+            Vertex v = vertex(label);
+            if(v != null && !v.isActive())
+                tombstones++;
+            releaseColdElements();
+        }
+        for(String label: labelsOf(edgeMap)){
+            AdjacencyRow row = row(label);
+            if(row != null){
+                for(Edge edge: row.values()){
+                    if(!edge.isActive())
+                        tombstones++;
+                }
+            }
+            releaseColdElements();
+        }
+        return tombstones;
+    }
+
     /**
      * Helper function to create/remove a vertex
      * To create/remove a vertex:
@@ -50,26 +149,83 @@ public class LWWElementGraph {
      * @param operation Either CREATE or REMOVE - operation to be performed
      */
     private void updateVertex(String label, long timestamp, Operation operation){
-        if(timestamp < 0 || label == null || label.trim().isEmpty()){
+        if(timestamp < 0 || isBlank(label)){
             System.err.println("Input provided to add/remove a vertex is not valid.");
             return;
         }
-        if(vertexMap.containsKey(label)) {
-            Vertex v = vertexMap.get(label);
-            if(CREATE.equals(operation) && v.getCreationTimestamp() < timestamp){
-                v.setCreationTimestamp(timestamp);
-            } else if (REMOVE.equals(operation) && v.getRemovalTimestamp() < timestamp) {
-                v.setRemovalTimestamp(timestamp);
-            }
-        } else {
-            Vertex v;
-            if(CREATE.equals(operation)) {
-                v = new Vertex(label, timestamp);
-            } else {
-                v = new Vertex(label, -1, timestamp);
-            }
+        // A label that was never seen before can't have any edges
+        boolean unseen = !labels.contains(label);
+        // A newly created vertex has both timestamps set to -1,
+        // so any valid timestamp will be LATER than them
+        Vertex v = vertexFor(label);
+        boolean changed = false;
+        if(CREATE.equals(operation) && v.getCreationTimestamp() < timestamp){
+            int before = v.hashCode();
+            v.setCreationTimestamp(timestamp);
+            vertexHash += v.hashCode() - before;
+            changed = true;
+        } else if (REMOVE.equals(operation) && v.getRemovalTimestamp() < timestamp) {
+            int before = v.hashCode();
+            v.setRemovalTimestamp(timestamp);
+            vertexHash += v.hashCode() - before;
+            changed = true;
+        }
+        if(changed && !reachability.isEmpty()){
+            // Only a new isolated vertex can be added to indexes, other changes might
+            // (in)validate existing edges
+            if(!unseen)
+                discardReachability(label);
+            else if(v.isActive())
+                addReachableVertex(v.getLabel());
+        }
+        releaseColdElements();
+    }
+
+    /**
+     * Helper function to obtain a vertex from the vertex map
+     * If there is no such vertex, it's created with both timestamps set to -1,
+     * i.e. as a vertex that was neither created nor removed yet
+     * @param label Vertex label, should be valid
+     * @return Vertex from the vertex map
+     */
+    private Vertex vertexFor(String label){
+        Vertex v = vertex(label);
+        if(v == null){
+            label = labels.intern(label);
+            v = new Vertex(label, -1, -1);
             vertexMap.put(label, v);
+            vertexHash += v.hashCode();
+            vertexCount++;
+            if(labelIndex != null)
+                labelIndex.add(label);
+            if(coldStorage != null)
+                coldStorage.touch(label);
         }
+        return v;
+    }
+
+    /**
+     * Helper function to look up a vertex, loading it from the cold storage if needed
+     * @param label Vertex label
+     * @return Vertex, or null if there is no such vertex
+     */
+    private Vertex vertex(String label){
+        if(coldStorage == null)
+            return vertexMap.get(label);
+        faultIn(label);
+        return vertexMap.get(label);
+    }
+
+    /**
+     * Helper function to look up a row of edges, loading it from the cold storage if needed
+     * @param srcLabel Source vertex label
+     * @return Row of edges outgoing from srcLabel, or null if there are no such edges
+     */
+    private AdjacencyRow row(String srcLabel){
+        if(coldStorage == null)
+            return edgeMap.get(srcLabel);
+        faultIn(srcLabel);
+        return edgeMap.get(srcLabel);
     }
 
     public void addVertex(String label){
@@ -91,19 +247,21 @@ public class LWWElementGraph {
     public boolean checkVertexExists(String label){
         // Vertex exists if it's present in the vertex map, and it's active,
         // i.e. its creation timestamp is AFTER removal timestamp
-        return vertexMap.containsKey(label) && vertexMap.get(label).isActive();
+        Vertex v = vertex(label);
+        releaseColdElements();
+        return v != null && v.isActive();
     }
 
     public long getVertexCreationTimestamp(String label){
-        if(vertexMap.containsKey(label))
-            return vertexMap.get(label).getCreationTimestamp();
-        return -1;
+        Vertex v = vertex(label);
+        releaseColdElements();
+        return v == null ? -1 : v.getCreationTimestamp();
     }
 
     public long getVertexRemovalTimestamp(String label){
-        if(vertexMap.containsKey(label))
-            return vertexMap.get(label).getRemovalTimestamp();
-        return -1;
+        Vertex v = vertex(label);
+        releaseColdElements();
+        return v == null ? -1 : v.getRemovalTimestamp();
     }
 
     public void addEdge(String srcLabel, String dstLabel){
@@ -132,7 +290,7 @@ public class LWWElementGraph {
      * Helper function to create/remove an edge
      * To create/remove an edge:
      * If an edge already exists, then update it with a LATER timestamp, if needed
-     * Else, simply create an edge with correct parameters
+     * Else, simply create an edge with correct parameters (see main.LWWElementGraph#edgeFor)
      * @param srcLabel Source vertex label
      * @param dstLabel Destination vertex label
      * @param timestamp Timestamp of edge creation/removal
@@ -140,52 +298,209 @@ public class LWWElementGraph {
      */
     private void updateEdge(String srcLabel, String dstLabel,
                             long timestamp, Operation operation){
-        if(timestamp < 0 || srcLabel == null || srcLabel.trim().isEmpty() ||
-                dstLabel == null || dstLabel.trim().isEmpty()){
+        if(timestamp < 0 || isBlank(srcLabel) || isBlank(dstLabel)){
             System.err.println("Input provided to add/remove an edge is not valid.");
             return;
         }
-        if(edgeMap.containsKey(srcLabel)){
-            Edge edge = edgeMap.get(srcLabel).getOrDefault(dstLabel, null);
-            if(edge == null){
-                if(CREATE.equals(operation)) {
-                    edgeMap.get(srcLabel).put(dstLabel, new Edge(srcLabel,
-                            dstLabel, timestamp));
-                } else {
-                    edgeMap.get(srcLabel).put(dstLabel, new Edge(srcLabel,
-                            dstLabel, -1, timestamp));
-                }
-            } else {
-                if(CREATE.equals(operation) && edge.getCreationTimestamp() < timestamp){
-                    edge.setCreationTimestamp(timestamp);
-                } else if (REMOVE.equals(operation) && edge.getRemovalTimestamp() < timestamp){
-                    edge.setRemovalTimestamp(timestamp);
-                }
-            }
-        } else {
-            edgeMap.put(srcLabel, new HashMap<>());
-            if(CREATE.equals(operation)) {
-                edgeMap.get(srcLabel).put(dstLabel, new Edge(srcLabel,
-                        dstLabel, timestamp));
-            } else {
-                edgeMap.get(srcLabel).put(dstLabel, new Edge(srcLabel,
-                        dstLabel, -1, timestamp));
-            }
+        AdjacencyRow row = rowFor(srcLabel);
+        Edge edge = edgeFor(row, srcLabel, dstLabel);
+        if(CREATE.equals(operation) && edge.getCreationTimestamp() < timestamp){
+            int before = edge.hashCode();
+            edge.setCreationTimestamp(timestamp);
+            edgeHash += edge.hashCode() - before;
+            row.updateLatestCreationTimestamp(timestamp);
+            // A LATER creation timestamp can only make the edge valid, never invalid
+            if(!reachability.isEmpty() && isValid(edge))
+                addReachableEdge(edge.getSrcLabel(), edge.getDstLabel());
+        } else if (REMOVE.equals(operation) && edge.getRemovalTimestamp() < timestamp){
+            if(!reachability.isEmpty() && isValid(edge))
+                discardReachability(srcLabel);
+            int before = edge.hashCode();
+            edge.setRemovalTimestamp(timestamp);
+            edgeHash += edge.hashCode() - before;
         }
+        releaseColdElements();
     }
 
-    public long getEdgeCreationTimestamp(String srcLabel, String dstLabel){
-        if(edgeMap.containsKey(srcLabel) && edgeMap.get(srcLabel).containsKey(dstLabel)){
-            return edgeMap.get(srcLabel).get(dstLabel).getCreationTimestamp();
+    /**
+     * Helper function to obtain a row of edges outgoing from a given vertex,
+     * creating an empty row if there is none
+     * @param srcLabel Source vertex label, should be valid
+     * @return Row of edges from the edge map
+     */
+    private AdjacencyRow rowFor(String srcLabel){
+        AdjacencyRow row = row(srcLabel);
+        if(row == null){
+            row = new AdjacencyRow();
+            srcLabel = labels.intern(srcLabel);
+            edgeMap.put(srcLabel, row);
+            if(labelIndex != null)
+                labelIndex.add(srcLabel);
+            if(coldStorage != null)
+                coldStorage.touch(srcLabel);
         }
-        return -1;
+        return row;
     }
 
-    public long getEdgeRemovalTimestamp(String srcLabel, String dstLabel){
-        if(edgeMap.containsKey(srcLabel) && edgeMap.get(srcLabel).containsKey(dstLabel)){
-            return edgeMap.get(srcLabel).get(dstLabel).getRemovalTimestamp();
+    /**
+     * Helper function to obtain an edge from a row of the edge map
+     * If there is no such edge, it's created with both timestamps set to -1,
+     * i.e. as an edge that was neither created nor removed yet
+     * @param row Row of edges outgoing from srcLabel
+     * @param srcLabel Source vertex label, should be valid
+     * @param dstLabel Destination vertex label, should be valid
+     * @return Edge from the edge map
+     */
+    private Edge edgeFor(AdjacencyRow row, String srcLabel, String dstLabel){
+        Edge edge = row.get(dstLabel);
+        if(edge == null){
+            srcLabel = labels.intern(srcLabel);
+            dstLabel = labels.intern(dstLabel);
+            edge = new Edge(srcLabel, dstLabel, -1, -1);
+            row.put(dstLabel, edge);
+            edgeHash += edge.hashCode();
+            edgeCount++;
         }
-        return -1;
+        return edge;
+    }
+
+    /**
+     * Sets a property of a vertex with Last-Write-Wins semantics
+     * Just like removal of a vertex, setting a property of a non-existent vertex is allowed:
+     * the property will be visible once the vertex is created
+     * @param label Vertex label
+     * @param key Property key
+     * @param value Property value, null value serves as a removed property
+     * @param timestamp Timestamp of the write
+     */
+    public void setVertexProperty(String label, String key, String value, long timestamp){
+        if(timestamp < 0 || isBlank(label) || key == null){
+            System.err.println("Input provided to set a vertex property is not valid.");
+            return;
+        }
+        Vertex v = vertexFor(label);
+        int before = v.hashCode();
+        if(v.setProperty(key, value, timestamp))
+            vertexHash += v.hashCode() - before;
+        releaseColdElements();
+    }
+
+    public String getVertexProperty(String label, String key){
+        Vertex v = vertex(label);
+        releaseColdElements();
+        return v == null ? null : v.getProperty(key);
+    }
+
+    /**
+     * Sets a property of an edge with Last-Write-Wins semantics
+     * If the graph is undirected, the property is set for both src->dst and dst->src edges
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @param key Property key
+     * @param value Property value, null value serves as a removed property
+     * @param timestamp Timestamp of the write
+     */
+    public void setEdgeProperty(String srcLabel, String dstLabel, String key, String value, long timestamp){
+        if(timestamp < 0 || isBlank(srcLabel) || isBlank(dstLabel) || key == null){
+            System.err.println("Input provided to set an edge property is not valid.");
+            return;
+        }
+        updateEdgeProperty(srcLabel, dstLabel, key, value, timestamp);
+        if(!directed)
+            updateEdgeProperty(dstLabel, srcLabel, key, value, timestamp);
+    }
+
+    private void updateEdgeProperty(String srcLabel, String dstLabel, String key, String value, long timestamp){
+        Edge edge = edgeFor(rowFor(srcLabel), srcLabel, dstLabel);
+        int before = edge.hashCode();
+        if(edge.setProperty(key, value, timestamp))
+            edgeHash += edge.hashCode() - before;
+        releaseColdElements();
+    }
+
+    public String getEdgeProperty(String srcLabel, String dstLabel, String key){
+        Edge edge = edge(srcLabel, dstLabel);
+        return edge == null ? null : edge.getProperty(key);
+    }
+
+    /**
+     * Sets weight of an edge with Last-Write-Wins semantics
+     * Weights are used by main.LWWElementGraph#findShortestPath; edges without
+     * an explicitly set weight have weight of main.model.Edge#DEFAULT_WEIGHT
+     * If the graph is undirected, the weight is set for both src->dst and dst->src edges
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @param weight Non-negative weight
+     * @param timestamp Timestamp of the write
+     */
+    public void setEdgeWeight(String srcLabel, String dstLabel, double weight, long timestamp){
+        if(timestamp < 0 || isBlank(srcLabel) || isBlank(dstLabel) || !(weight >= 0) ||
+                Double.isInfinite(weight)){
+            System.err.println("Input provided to set an edge weight is not valid.");
+            return;
+        }
+        updateEdgeWeight(srcLabel, dstLabel, weight, timestamp);
+        if(!directed)
+            updateEdgeWeight(dstLabel, srcLabel, weight, timestamp);
+    }
+
+    private void updateEdgeWeight(String srcLabel, String dstLabel, double weight, long timestamp){
+        AdjacencyRow row = rowFor(srcLabel);
+        Edge edge = edgeFor(row, srcLabel, dstLabel);
+        if(edge.acceptsWeight(weight, timestamp)){
+            int before = edge.hashCode();
+            WeightedEdge weighted = weightedEdge(row, edge);
+            weighted.setWeight(weight, timestamp);
+            edgeHash += weighted.hashCode() - before;
+        }
+        releaseColdElements();
+    }
+
+    /**
+     * Helper function to obtain an edge which can hold a weight, replacing the edge
+     * in its row with a weighted copy if needed (see main.model.WeightedEdge)
+     * @param row Row of the edge
+     * @param edge Edge of the row
+     * @return Weighted edge, which is now in the row
+     */
+    private static WeightedEdge weightedEdge(AdjacencyRow row, Edge edge){
+        WeightedEdge weighted = edge.toWeighted();
+        if(weighted != edge)
+            row.put(edge.getDstLabel(), weighted);
+        return weighted;
+    }
+
+    /**
+     * Obtain weight of an edge
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @return Weight of the edge, or NaN if there is no such edge
+     */
+    public double getEdgeWeight(String srcLabel, String dstLabel){
+        Edge edge = edge(srcLabel, dstLabel);
+        return edge == null ? Double.NaN : edge.getWeight();
+    }
+
+    public long getEdgeCreationTimestamp(String srcLabel, String dstLabel){
+        Edge edge = edge(srcLabel, dstLabel);
+        return edge == null ? -1 : edge.getCreationTimestamp();
+    }
+
+    public long getEdgeRemovalTimestamp(String srcLabel, String dstLabel){
+        Edge edge = edge(srcLabel, dstLabel);
+        return edge == null ? -1 : edge.getRemovalTimestamp();
+    }
+
+    /**
+     * Helper function to look up an edge for reading
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @return Edge, or null if there is no such edge
+     */
+    private Edge edge(String srcLabel, String dstLabel){
+        AdjacencyRow row = row(srcLabel);
+        releaseColdElements();
+        return row == null ? null : row.get(dstLabel);
     }
 
     /**
@@ -195,35 +510,207 @@ public class LWWElementGraph {
      * - Both of its vertices should exist and be active
      * - Both of its vertices' creation time should be AT or BEFORE creation time of the
      *          edge itself.
+     * Creation time of the source vertex serves as an epoch: edges created before it are
+     * skipped without looking up their destination vertices, and if the whole row of edges
+     * predates it (see main.model.AdjacencyRow), the row is not iterated at all
      * @param srcLabel Given source vertex label
      * @return List of vertex labels that are connected to srcLabel
      */
     public List<String> getAdjacentVertices(String srcLabel){
-        if(srcLabel == null || srcLabel.trim().isEmpty()){
+        if(isBlank(srcLabel)){
             System.err.println("Input provided to get adjacent vertices is not valid.");
             return new ArrayList<>();
         }
-        // If there is no such vertex, or no edges recorded for this vertex,return empty list
-        if(!vertexMap.containsKey(srcLabel) || !edgeMap.containsKey(srcLabel))
+        List<Edge> edges = getValidEdges(srcLabel);
+        List<String> result = new ArrayList<>(edges.size());
+        for(Edge edge: edges){
+            result.add(edge.getDstLabel());
+        }
+        releaseColdElements();
+        return result;
+    }
+
+    /**
+     * Obtain all VALID edges outgoing from a given vertex
+     * (see main.LWWElementGraph#getAdjacentVertices for definition of a VALID edge)
+     * @param srcLabel Given source vertex label
+     * @return List of valid edges
+     */
+    private List<Edge> getValidEdges(String srcLabel){
+        // If there is no such active vertex, or no edges recorded for this vertex, return empty list
+        Vertex src = vertex(srcLabel);
+        AdjacencyRow row = row(srcLabel);
+        if(src == null || row == null || !src.isActive())
             return new ArrayList<>();
-        List<String> result = new ArrayList<>();
+
+        // All edges in the row were created before the source vertex was (re)created
+        long epoch = src.getCreationTimestamp();
+        if(row.getLatestCreationTimestamp() < epoch)
+            return new ArrayList<>();
+        List<Edge> result = new ArrayList<>();
 
         // Go through the 'adjacency' map (edgeMap) and filter non-valid edges
-        for(String dstLabel: edgeMap.get(srcLabel).keySet()){
-            Edge edge = edgeMap.get(srcLabel).get(dstLabel);
-            if(edge.isActive() && vertexMap.containsKey(srcLabel) &&
-                    vertexMap.containsKey(dstLabel)){
-                Vertex src = vertexMap.get(srcLabel);
-                Vertex dst = vertexMap.get(dstLabel);
-                if(src.isActive() && edge.getCreationTimestamp() >= src.getCreationTimestamp() &&
-                        dst.isActive() && edge.getCreationTimestamp() >= dst.getCreationTimestamp()){
-                    result.add(dstLabel);
-                }
+        for(Edge edge: row.values()){
+            if(edge.getCreationTimestamp() < epoch || !edge.isActive())
+                continue;
+            Vertex dst = vertex(edge.getDstLabel());
+            if(dst != null && dst.isActive() && edge.getCreationTimestamp() >= dst.getCreationTimestamp()){
+                result.add(edge);
             }
         }
         return result;
     }
 
+    /**
+     * Helper function to check whether a given edge is VALID
+     * (see main.LWWElementGraph#getAdjacentVertices for definition of a VALID edge)
+     * @param edge Edge to be checked
+     * @return true if the edge is valid
+     */
+    private boolean isValid(Edge edge){
+        if(!edge.isActive())
+            return false;
+        Vertex src = vertex(edge.getSrcLabel());
+        Vertex dst = vertex(edge.getDstLabel());
+        return src != null && src.isActive() && edge.getCreationTimestamp() >= src.getCreationTimestamp() &&
+                dst != null && dst.isActive() && edge.getCreationTimestamp() >= dst.getCreationTimestamp();
+    }
+
+    /**
+     * Checks whether there is a path between given vertices, made of VALID edges
+     * Unlike main.LWWElementGraph#findPath, doesn't search the graph: queries are answered by
+     * a reachability index (see main.ReachabilityIndex), which is built on the first query and
+     * updated as vertices and edges are added; removals, re-creations of vertices and merged
+     * changes discard the index, so that it's rebuilt on the next query
+     * Once the index is built, adding a vertex or an edge costs O(1) more; added directed edges
+     * are applied on the next query, each in a pass over all components, unless there are
+     * so many of them that rebuilding the index is cheaper
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @return true if both vertices exist and dstLabel is reachable from srcLabel
+     */
+    public boolean isReachable(String srcLabel, String dstLabel){
+        return isReachable(srcLabel, dstLabel, "");
+    }
+
+    /**
+     * Checks whether there is a path between given vertices, going only through vertices
+     * of a given scope (see main.LWWElementGraph#isReachable(String, String))
+     * The scope has its own index, which is only discarded by changes within the scope,
+     * and built over labels of the scope only (in O(log n + k) with the label index enabled)
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @param scope Scope of labels (see main.LWWElementGraph#scopeOf), or "" for the whole graph
+     * @return true if both vertices exist within the scope and dstLabel is reachable from srcLabel
+     */
+    boolean isReachable(String srcLabel, String dstLabel, String scope){
+        if(isBlank(srcLabel) || isBlank(dstLabel)){
+            System.err.println("Input provided to check reachability is not correct.");
+            return false;
+        }
+        ReachabilityIndex index = reachability.get(scope);
+        if(index == null || !index.flush()){
+            index = buildReachabilityIndex(scope);
+            reachability.put(scope, index);
+        }
+        return index.isReachable(srcLabel, dstLabel);
+    }
+
+    /**
+     * Helper function to build a reachability index of active vertices and valid edges
+     * within a given scope
+     * @param scope Scope of labels, or "" for the whole graph
+     * @return Built index
+     */
+    private ReachabilityIndex buildReachabilityIndex(String scope){
+        Collection<String> candidates = scope.isEmpty() ? labelsOf(vertexMap) :
+                labelsOf(vertexMap, LabelFilter.prefix(scope));
+        List<String> active = new ArrayList<>();
+        for(String label: candidates){
+            if(!label.startsWith(scope))
+                continue;
+            Vertex v = vertex(label);
+            if(v != null && v.isActive())
+                active.add(v.getLabel());
+            releaseColdElements();
+        }
+        ReachabilityIndex index = new ReachabilityIndex(directed, active);
+        List<int[]> adjacency = new ArrayList<>(active.size());
+        for(String label: active){
+            List<Edge> edges = getValidEdges(label);
+            int[] ids = new int[edges.size()];
+            int size = 0;
+            for(Edge edge: edges){
+                // Edges leaving the scope are not part of it
+                int id = index.idOf(edge.getDstLabel());
+                if(id >= 0)
+                    ids[size++] = id;
+            }
+            adjacency.add(size == ids.length ? ids : Arrays.copyOf(ids, size));
+            releaseColdElements();
+        }
+        index.build(adjacency);
+        return index;
+    }
+
+    /**
+     * Helper function to obtain the scope of a label
+     * @param label Vertex label
+     * @return Part of the label up to (and including) the first main.LWWElementGraph#SCOPE_SEPARATOR,
+     *         or null if the label doesn't belong to a scope
+     */
+    private static String scopeOf(String label){
+        int end = label.indexOf(SCOPE_SEPARATOR);
+        return end < 0 ? null : label.substring(0, end + 1);
+    }
+
+    /**
+     * Helper function to discard reachability indexes affected by a change of a vertex,
+     * or of an edge outgoing from it: the index of the whole graph, and of the vertex's scope
+     * @param label Vertex label
+     */
+    private void discardReachability(String label){
+        if(reachability.isEmpty())
+            return;
+        reachability.remove("");
+        String scope = scopeOf(label);
+        if(scope != null)
+            reachability.remove(scope);
+    }
+
+    /**
+     * Helper function to add a new active vertex to reachability indexes it belongs to
+     * @param label Vertex label
+     */
+    private void addReachableVertex(String label){
+        ReachabilityIndex whole = reachability.get("");
+        if(whole != null)
+            whole.addVertex(label);
+        String scope = scopeOf(label);
+        ReachabilityIndex scoped = scope == null ? null : reachability.get(scope);
+        if(scoped != null)
+            scoped.addVertex(label);
+    }
+
+    /**
+     * Helper function to add a new valid edge to reachability indexes it belongs to,
+     * discarding indexes that cannot be updated
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     */
+    private void addReachableEdge(String srcLabel, String dstLabel){
+        addReachableEdge("", srcLabel, dstLabel);
+        String scope = scopeOf(srcLabel);
+        if(scope != null && dstLabel.startsWith(scope))
+            addReachableEdge(scope, srcLabel, dstLabel);
+    }
+
+    private void addReachableEdge(String scope, String srcLabel, String dstLabel){
+        ReachabilityIndex index = reachability.get(scope);
+        if(index != null && !index.addEdge(srcLabel, dstLabel))
+            reachability.remove(scope);
+    }
+
     /**
      * Finds a single path between given vertices
      * Based on DFS search
@@ -235,8 +722,7 @@ public class LWWElementGraph {
      *        If there is no path, returns an empty list
      */
     public List<String> findPath(String srcLabel, String dstLabel){
-        if(srcLabel == null || srcLabel.trim().isEmpty() ||
-                dstLabel == null || dstLabel.trim().isEmpty()){
+        if(isBlank(srcLabel) || isBlank(dstLabel)){
             System.err.println("Input provided to find path is not correct.");
             return new ArrayList<>();
         }
@@ -249,6 +735,55 @@ public class LWWElementGraph {
         return new ArrayList<>();
     }
 
+    /**
+     * Finds a shortest path between given vertices, using weights of VALID edges
+     * Based on Dijkstra's algorithm
+     * @param srcLabel Source vertex label
+     * @param dstLabel Destination vertex label
+     * @return A path with minimal total weight between srcLabel and dstLabel (list of labels
+     *        of vertices that will be passed through, including srcLabel and dstLabel)
+     *        If there is no path, returns an empty list
+     */
+    public List<String> findShortestPath(String srcLabel, String dstLabel){
+        if(isBlank(srcLabel) || isBlank(dstLabel)){
+            System.err.println("Input provided to find shortest path is not correct.");
+            return new ArrayList<>();
+        }
+        if(!checkVertexExists(srcLabel) || !checkVertexExists(dstLabel))
+            return new ArrayList<>();
+        Map<String, Double> distances = new HashMap<>();
+        Map<String, String> previous = new HashMap<>();
+        PriorityQueue<Map.Entry<String, Double>> queue =
+                new PriorityQueue<>(Map.Entry.comparingByValue());
+        distances.put(srcLabel, 0.0);
+        queue.add(new AbstractMap.SimpleEntry<>(srcLabel, 0.0));
+        while(!queue.isEmpty()){
+            Map.Entry<String, Double> closest = queue.poll();
+            String label = closest.getKey();
+            // Skip outdated queue entries
+            if(closest.getValue() > distances.get(label))
+                continue;
+            if(label.equals(dstLabel)){
+                LinkedList<String> path = new LinkedList<>();
+                for(String l = dstLabel; l != null; l = previous.get(l)){
+                    path.addFirst(l);
+                }
+                return new ArrayList<>(path);
+            }
+            for(Edge edge: getValidEdges(label)){
+                double distance = closest.getValue() + edge.getWeight();
+                Double known = distances.get(edge.getDstLabel());
+                if(known == null || distance < known){
+                    distances.put(edge.getDstLabel(), distance);
+                    previous.put(edge.getDstLabel(), label);
+                    queue.add(new AbstractMap.SimpleEntry<>(edge.getDstLabel(), distance));
+                }
+            }
+            releaseColdElements();
+        }
+        return new ArrayList<>();
+    }
+
     private boolean connected(String srcLabel, String dstLabel,
                               Stack<String> path, Map<String,Boolean> visited){
         visited.put(srcLabel, true);
@@ -272,66 +807,483 @@ public class LWWElementGraph {
      * Both internal maps will be merged based on simple rules:
      * If an element (vertex/edge) from another graph exists in THIS graph:
      *    - Update both creation and removal timestamps with the LATEST
+     *    - Merge properties (and edge weight) as Last-Write-Wins registers
      * Else, deep copy this element
      * @param other Other graph to be merged with
      */
     public void merge(LWWElementGraph other){
+        mergeFiltered(other, null, null, null);
+    }
+
+    /**
+     * Merges the current graph with another graph (see main.LWWElementGraph#merge),
+     * reporting effective changes of elements of THIS graph as they are made:
+     * elements whose timestamps moved forward, whose properties changed, or which
+     * were (de)activated (see main.model.ChangeSet for flags of a change)
+     * @param other Other graph to be merged with
+     * @param listener Listener to be notified of every changed element
+     */
+    public void merge(LWWElementGraph other, ChangeListener listener){
+        if(listener == null){
+            System.err.println("Listener provided to merge a graph is not valid.");
+            return;
+        }
+        mergeFiltered(other, null, null, listener);
+    }
+
+    /**
+     * Merges the current graph with another graph (see main.LWWElementGraph#merge)
+     * @param other Other graph to be merged with
+     * @return Effective changes of elements of THIS graph made by the merge
+     */
+    public ChangeSet mergeWithChanges(LWWElementGraph other){
+        ChangeSet changes = new ChangeSet();
+        mergeFiltered(other, null, null, changes);
+        return changes;
+    }
+
+    /**
+     * Merges a part of another graph into the current graph: only vertices whose labels
+     * are accepted by a given filter, and edges outgoing from them
+     * Note that for undirected graphs, an edge to a vertex which is not accepted is still copied,
+     * while the reverse edge is not
+     * @param other Other graph to be merged with
+     * @param filter Filter on vertex labels
+     */
+    public void merge(LWWElementGraph other, LabelFilter filter){
+        if(filter == null){
+            System.err.println("Filter provided to merge a graph is not valid.");
+            return;
+        }
+        mergeFiltered(other, filter, null, null);
+    }
+
+    /**
+     * Extracts a part of the current graph: vertices whose labels are accepted by a given filter,
+     * and edges outgoing from them (see main.LWWElementGraph#merge(LWWElementGraph, LabelFilter))
+     * @param filter Filter on vertex labels
+     * @return New graph containing deep copies of accepted elements
+     */
+    public LWWElementGraph extract(LabelFilter filter){
+        LWWElementGraph result = new LWWElementGraph(directed);
+        result.merge(this, filter);
+        return result;
+    }
+
+    /**
+     * Merges a part of another graph into the current graph, changing labels of merged elements
+     * (see main.LWWElementGraph#merge(LWWElementGraph, LabelFilter))
+     * @param other Other graph to be merged with
+     * @param filter Filter on vertex labels of the other graph, null to merge the whole graph
+     * @param relabel Function mapping labels of the other graph to labels of this graph;
+     *                elements mapped to null are skipped
+     */
+    void merge(LWWElementGraph other, LabelFilter filter, UnaryOperator<String> relabel){
+        mergeFiltered(other, filter, relabel, null);
+    }
+
+    /**
+     * Helper function to merge (a part of) another graph into the current graph
+     * @param other Other graph to be merged with
+     * @param filter Filter on vertex labels, null to merge the whole graph
+     * @param relabel Function mapping labels of the other graph to labels of this graph, null to keep them
+     * @param listener Listener to be notified of changed elements, might be null
+     */
+    private void mergeFiltered(LWWElementGraph other, LabelFilter filter,
+                               UnaryOperator<String> relabel, ChangeListener listener){
         if(other.directed != directed){
             System.err.println("Cannot merge a directed and undirected graphs.");
             return;
         }
-        for(String label: other.vertexMap.keySet()){
-            Vertex otherVertex = other.vertexMap.get(label);
-            if(vertexMap.containsKey(label)){
-                Vertex thisVertex = vertexMap.get(label);
-                if(thisVertex.getCreationTimestamp() < otherVertex.getCreationTimestamp()){
-                    thisVertex.setCreationTimestamp(otherVertex.getCreationTimestamp());
-                }
-                if(thisVertex.getRemovalTimestamp() < otherVertex.getRemovalTimestamp()){
-                    thisVertex.setRemovalTimestamp(otherVertex.getRemovalTimestamp());
+        for(String label: other.labelsOf(other.vertexMap, filter)){
+            if(filter != null && !filter.test(label))
+                continue;
+            Vertex otherVertex = other.vertex(label);
+            String thisLabel = relabel == null ? label : relabel.apply(label);
+            if(otherVertex != null && thisLabel != null)
+                mergeVertex(thisLabel, otherVertex, listener);
+            releaseColdElements();
+            other.releaseColdElements();
+        }
+
+        for(String label: other.labelsOf(other.edgeMap, filter)){
+            if(filter != null && !filter.test(label))
+                continue;
+            AdjacencyRow otherRow = other.row(label);
+            String thisLabel = relabel == null ? label : relabel.apply(label);
+            if(otherRow != null && thisLabel != null){
+                AdjacencyRow thisRow = rowFor(thisLabel);
+                for(Edge otherEdge: otherRow.values()){
+                    String dstLabel = relabel == null ? otherEdge.getDstLabel() : relabel.apply(otherEdge.getDstLabel());
+                    if(dstLabel != null)
+                        mergeEdge(thisRow, thisLabel, dstLabel, otherEdge, listener);
                 }
-            } else {
-                // deep copy
-                vertexMap.put(label, new Vertex(otherVertex.getLabel(),
-                        otherVertex.getCreationTimestamp(), otherVertex.getRemovalTimestamp()));
             }
+            releaseColdElements();
+            other.releaseColdElements();
         }
+    }
 
-        for(String label: other.edgeMap.keySet()){
-            // If some edge was associated with a given vertex `label` in THIS graph
-            if(edgeMap.containsKey(label)){
-                // Go through each dstLabel of OTHER graph's edge map
-                for(String dstLabel: other.edgeMap.get(label).keySet()){
-                    Edge otherEdge = other.edgeMap.get(label).get(dstLabel);
-
-                    // If this graph has the same edge, update timestamps
-                    if(edgeMap.get(label).containsKey(dstLabel)) {
-                        Edge thisEdge = edgeMap.get(label).get(dstLabel);
-                        if(thisEdge.getCreationTimestamp() < otherEdge.getCreationTimestamp()){
-                            thisEdge.setCreationTimestamp(otherEdge.getCreationTimestamp());
-                        }
-                        if(thisEdge.getRemovalTimestamp() < otherEdge.getRemovalTimestamp()){
-                            thisEdge.setRemovalTimestamp(otherEdge.getRemovalTimestamp());
-                        }
-                    } else {
-                        // This graph doesn't have such edge, deep copy this edge
-                        edgeMap.get(label).put(dstLabel, new Edge(otherEdge.getSrcLabel(),
-                                otherEdge.getDstLabel(),
-                                otherEdge.getCreationTimestamp(), otherEdge.getRemovalTimestamp()));
-                    }
-                }
-            } else {
-                // There were no edges whatsoever in THIS graph associated with vertex `label`
-                Map<String, Edge> toPut = new HashMap<>();
-                // deep copy ALL edges from OTHER graph
-                for(String dstLabel: other.edgeMap.get(label).keySet()){
-                    Edge otherEdge = other.edgeMap.get(label).get(dstLabel);
-                    toPut.put(dstLabel, new Edge(otherEdge.getSrcLabel(), otherEdge.getDstLabel(),
-                            otherEdge.getCreationTimestamp(), otherEdge.getRemovalTimestamp()));
-                }
-                edgeMap.put(label, toPut);
+    /**
+     * Helper function to merge a vertex of another graph into the current graph
+     * If this graph doesn't have such vertex, it's created with -1 timestamps,
+     * so the merge turns it into a deep copy
+     * @param label Vertex label in this graph
+     * @param otherVertex Vertex to be merged
+     * @param listener Listener to be notified if the vertex changes, might be null
+     */
+    private void mergeVertex(String label, Vertex otherVertex, ChangeListener listener){
+        Vertex thisVertex = vertexFor(label);
+        int before = thisVertex.hashCode();
+        boolean wasActive = thisVertex.isActive();
+        int flags = 0;
+        if(thisVertex.getCreationTimestamp() < otherVertex.getCreationTimestamp()){
+            thisVertex.setCreationTimestamp(otherVertex.getCreationTimestamp());
+            flags |= ChangeSet.CREATED;
+        }
+        if(thisVertex.getRemovalTimestamp() < otherVertex.getRemovalTimestamp()){
+            thisVertex.setRemovalTimestamp(otherVertex.getRemovalTimestamp());
+            flags |= ChangeSet.REMOVED;
+        }
+        if(thisVertex.mergeProperties(otherVertex.getProperties()))
+            flags |= ChangeSet.PROPERTIES;
+        vertexHash += thisVertex.hashCode() - before;
+        // Indexes are rebuilt once on the next query, rather than updated on every merged element
+        if((flags & (ChangeSet.CREATED | ChangeSet.REMOVED)) != 0)
+            discardReachability(label);
+        if(listener != null && flags != 0){
+            flags |= activityFlags(wasActive, thisVertex.isActive());
+            listener.vertexChanged(thisVertex.getLabel(), flags,
+                    thisVertex.getCreationTimestamp(), thisVertex.getRemovalTimestamp());
+        }
+    }
+
+    /**
+     * Helper function to merge an edge of another graph into a row of the current graph,
+     * updating timestamps of the same edge in THIS graph (deep copying it if there is no such edge)
+     * @param row Row of edges outgoing from srcLabel
+     * @param srcLabel Source vertex label in this graph
+     * @param dstLabel Destination vertex label in this graph
+     * @param otherEdge Edge to be merged
+     * @param listener Listener to be notified if the edge changes, might be null
+     */
+    private void mergeEdge(AdjacencyRow row, String srcLabel, String dstLabel,
+                           Edge otherEdge, ChangeListener listener){
+        Edge thisEdge = edgeFor(row, srcLabel, dstLabel);
+        int before = thisEdge.hashCode();
+        boolean wasActive = thisEdge.isActive();
+        int flags = 0;
+        if(thisEdge.getCreationTimestamp() < otherEdge.getCreationTimestamp()){
+            thisEdge.setCreationTimestamp(otherEdge.getCreationTimestamp());
+            row.updateLatestCreationTimestamp(otherEdge.getCreationTimestamp());
+            flags |= ChangeSet.CREATED;
+        }
+        if(thisEdge.getRemovalTimestamp() < otherEdge.getRemovalTimestamp()){
+            thisEdge.setRemovalTimestamp(otherEdge.getRemovalTimestamp());
+            flags |= ChangeSet.REMOVED;
+        }
+        if(thisEdge.acceptsWeight(otherEdge.getWeight(), otherEdge.getWeightTimestamp())){
+            WeightedEdge weighted = weightedEdge(row, thisEdge);
+            weighted.setWeight(otherEdge.getWeight(), otherEdge.getWeightTimestamp());
+            thisEdge = weighted;
+            flags |= ChangeSet.PROPERTIES;
+        }
+        if(thisEdge.mergeProperties(otherEdge.getProperties()))
+            flags |= ChangeSet.PROPERTIES;
+        edgeHash += thisEdge.hashCode() - before;
+        if((flags & (ChangeSet.CREATED | ChangeSet.REMOVED)) != 0)
+            discardReachability(srcLabel);
+        if(listener != null && flags != 0){
+            flags |= activityFlags(wasActive, thisEdge.isActive());
+            listener.edgeChanged(thisEdge.getSrcLabel(), thisEdge.getDstLabel(), flags,
+                    thisEdge.getCreationTimestamp(), thisEdge.getRemovalTimestamp());
+        }
+    }
+
+    /**
+     * Writes all elements of the graph, including removed ones
+     * (see main.storage.ElementCodec for encoding of elements)
+     * @param out Output to write to
+     * @throws IOException If writing fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+        for(String label: labelsOf(vertexMap)){
+            Vertex v = vertex(label);
+            if(v != null){
+                out.writeBoolean(true);
+                ElementCodec.writeString(out, label);
+                ElementCodec.writeVertex(out, v);
+            }
+            releaseColdElements();
+        }
+        out.writeBoolean(false);
+        for(String label: labelsOf(edgeMap)){
+            AdjacencyRow row = row(label);
+            if(row != null){
+                out.writeBoolean(true);
+                ElementCodec.writeString(out, label);
+                ElementCodec.writeRow(out, row);
             }
+            releaseColdElements();
         }
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Reads elements written by main.LWWElementGraph#writeTo, merging them into this graph
+     * @param in Input to read from
+     * @throws IOException If reading fails
+     */
+    void readFrom(DataInput in) throws IOException {
+        while(in.readBoolean()){
+            String label = labels.intern(ElementCodec.readString(in));
+            mergeVertex(label, ElementCodec.readVertex(in, label), null);
+            releaseColdElements();
+        }
+        while(in.readBoolean()){
+            String label = labels.intern(ElementCodec.readString(in));
+            AdjacencyRow otherRow = ElementCodec.readRow(in, label, labels);
+            AdjacencyRow thisRow = rowFor(label);
+            for(Edge otherEdge: otherRow.values()){
+                mergeEdge(thisRow, label, otherEdge.getDstLabel(), otherEdge, null);
+            }
+            releaseColdElements();
+        }
+    }
+
+    private static int activityFlags(boolean wasActive, boolean isActive){
+        if(wasActive == isActive)
+            return 0;
+        return isActive ? ChangeSet.ACTIVATED : ChangeSet.DEACTIVATED;
+    }
+
+    /**
+     * Enables tiered storage: at most hotCapacity labels (each with its vertex and the row of
+     * edges outgoing from it) are kept in memory, and the rest are moved to segment files
+     * in a given directory, picked by a CLOCK policy (see main.storage.ColdStorage)
+     * Cold elements are loaded back transparently whenever they are accessed
+     * Only elements are bounded by hotCapacity; per-label structures stay in memory for all
+     * labels, hot or cold: the label dictionary, the label index (if enabled) and the index of
+     * cold labels (see main.storage.ColdStorage), as well as the running hashes and counts
+     * Segment files are kept in a new subdirectory of the given directory, which is deleted
+     * by main.LWWElementGraph#disableColdStorage, so several graphs can share a directory
+     * @param directory Directory for segment files
+     * @param hotCapacity Maximum number of labels to be kept in memory
+     * @throws IOException If the cold storage cannot be created
+     */
+    public void enableColdStorage(Path directory, int hotCapacity) throws IOException {
+        if(coldStorage != null){
+            System.err.println("Cold storage is already enabled.");
+            return;
+        }
+        coldStorage = new ColdStorage(directory, hotCapacity);
+        for(String label: vertexMap.keySet()){
+            coldStorage.touch(label);
+        }
+        for(String label: edgeMap.keySet()){
+            coldStorage.touch(label);
+        }
+        releaseColdElements();
+    }
+
+    /**
+     * Disables tiered storage, loading all cold elements back in memory
+     */
+    public void disableColdStorage(){
+        if(coldStorage == null)
+            return;
+        for(String label: coldStorage.labels()){
+            faultIn(label);
+        }
+        try {
+            coldStorage.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            coldStorage = null;
+        }
+    }
+
+    public boolean isColdStorageEnabled(){
+        return coldStorage != null;
+    }
+
+    public int getColdLabelCount(){
+        return coldStorage == null ? 0 : coldStorage.size();
+    }
+
+    /**
+     * Helper function to load vertex and row of edges of a cold label back in memory
+     * @param label Vertex label
+     */
+    private void faultIn(String label){
+        if(!coldStorage.isCold(label)){
+            // Either hot or unknown label, touching an unknown label has no effect
+            if(vertexMap.containsKey(label) || edgeMap.containsKey(label))
+                coldStorage.touch(label);
+            return;
+        }
+        ColdStorage.Record record = coldStorage.load(label, labels);
+        String canonical = labels.intern(label);
+        if(record.getVertex() != null)
+            vertexMap.put(canonical, record.getVertex());
+        if(record.getRow() != null)
+            edgeMap.put(canonical, record.getRow());
+    }
+
+    /**
+     * Helper function to move elements out of memory, until at most hotCapacity labels are hot
+     * Should only be called when no reference to a vertex/row is held by the caller,
+     * as a held element might be evicted, and further changes to it would be lost
+     */
+    private void releaseColdElements(){
+        if(coldStorage == null)
+            return;
+        while(coldStorage.needsEviction()){
+            String label = coldStorage.nextVictim();
+            coldStorage.store(label, vertexMap.remove(label), edgeMap.remove(label));
+        }
+    }
+
+    /**
+     * Helper function to obtain all labels of a given internal map (vertexMap or edgeMap)
+     * to iterate over, including cold ones; with tiered storage, the map is modified as cold
+     * elements are loaded, hence a snapshot of labels is returned
+     * @param map Either vertexMap or edgeMap of this graph
+     * @return Labels to iterate over; elements of cold labels might be missing in the map
+     */
+    private Collection<String> labelsOf(Map<String, ?> map){
+        if(coldStorage == null)
+            return map.keySet();
+        List<String> result = new ArrayList<>(map.keySet());
+        result.addAll(coldStorage.labels());
+        return result;
+    }
+
+    /**
+     * Helper function to obtain labels of a given internal map, that might be accepted by
+     * a given filter; if the filter is a prefix filter and the label index is enabled,
+     * only labels with the prefix are returned, without going through the whole map
+     * @param map Either vertexMap or edgeMap of this graph
+     * @param filter Filter on labels, might be null
+     * @return Labels to iterate over, which still need to be checked against the filter
+     */
+    private Collection<String> labelsOf(Map<String, ?> map, LabelFilter filter){
+        if(filter == null || filter.getPrefix() == null || labelIndex == null)
+            return labelsOf(map);
+        return scanLabels(filter.getPrefix(), null, filter.getPrefix(), Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Enables the sorted label index, which makes prefix and range scans over vertices
+     * (and filtered merges/extracts with prefix filters) take O(log n + k) time,
+     * where k is the number of scanned labels
+     */
+    public void enableLabelIndex(){
+        if(labelIndex != null)
+            return;
+        labelIndex = new TreeSet<>(labelsOf(vertexMap));
+        labelIndex.addAll(labelsOf(edgeMap));
+    }
+
+    public boolean isLabelIndexEnabled(){
+        return labelIndex != null;
+    }
+
+    /**
+     * Obtain labels of all existing vertices starting with a given prefix, in sorted order
+     * Goes through the whole graph if the label index is not enabled
+     * @param prefix Label prefix
+     * @return Sorted list of vertex labels
+     */
+    public List<String> getVerticesWithPrefix(String prefix){
+        if(prefix == null){
+            System.err.println("Input provided to scan vertices is not valid.");
+            return new ArrayList<>();
+        }
+        return scanLabels(prefix, null, prefix, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Obtain labels of all existing vertices within a given range, in sorted order
+     * Goes through the whole graph if the label index is not enabled
+     * @param fromLabel Lower bound (inclusive)
+     * @param toLabel Upper bound (exclusive), null for no upper bound
+     * @return Sorted list of vertex labels
+     */
+    public List<String> getVerticesInRange(String fromLabel, String toLabel){
+        if(fromLabel == null){
+            System.err.println("Input provided to scan vertices is not valid.");
+            return new ArrayList<>();
+        }
+        return scanLabels(fromLabel, toLabel, null, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Obtain a page of labels of existing vertices, in sorted order
+     * To iterate over all vertices, pass the last label of the previous page as afterLabel
+     * Goes through the whole graph if the label index is not enabled
+     * @param afterLabel Label to start after (exclusive), null to start from the beginning
+     * @param limit Maximum number of labels to return
+     * @return Sorted list of at most limit vertex labels
+     */
+    public List<String> getVertices(String afterLabel, int limit){
+        if(limit < 0){
+            System.err.println("Input provided to scan vertices is not valid.");
+            return new ArrayList<>();
+        }
+        // The smallest string greater than afterLabel is afterLabel followed by '\0'
+        String fromLabel = afterLabel == null ? "" : afterLabel + '\0';
+        return scanLabels(fromLabel, null, null, limit, true);
+    }
+
+    /**
+     * Helper function to scan labels in sorted order, using the label index if enabled
+     * @param fromLabel Lower bound (inclusive)
+     * @param toLabel Upper bound (exclusive), null for no upper bound
+     * @param prefix Prefix of labels, null for any labels
+     * @param limit Maximum number of labels to return
+     * @param activeOnly Whether to return labels of existing vertices only
+     * @return Sorted list of labels
+     */
+    private List<String> scanLabels(String fromLabel, String toLabel, String prefix,
+                                    int limit, boolean activeOnly){
+        NavigableSet<String> candidates;
+        if(labelIndex != null){
+            candidates = labelIndex;
+        } else {
+            candidates = new TreeSet<>(labelsOf(vertexMap));
+        }
+        List<String> result = new ArrayList<>();
+        for(String label: candidates.tailSet(fromLabel, true)){
+            if(result.size() >= limit || (toLabel != null && label.compareTo(toLabel) >= 0) ||
+                    (prefix != null && !label.startsWith(prefix)))
+                break;
+            if(activeOnly){
+                Vertex v = vertex(label);
+                releaseColdElements();
+                if(v == null || !v.isActive())
+                    continue;
+            }
+            result.add(label);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether a given label is null or consists of whitespace only
+     * Equivalent to `label.trim().isEmpty()`, but does not allocate a trimmed copy
+     * @param label Label to be checked
+     * @return true if the label cannot be used as a vertex label
+     */
+    static boolean isBlank(String label){
+        if(label == null)
+            return true;
+        for(int i = 0; i < label.length(); i++){
+            if(label.charAt(i) > ' ')
+                return false;
+        }
+        return true;
     }
 
     @Override
@@ -339,33 +1291,70 @@ public class LWWElementGraph {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         LWWElementGraph that = (LWWElementGraph) o;
-        return vertexMap.equals(that.vertexMap) &&
-                edgeMap.equals(that.edgeMap) && that.directed == directed;
+        // Fast rejection: graphs with different sizes or running hashes can't be equal
+        if(that.directed != directed || that.vertexCount != vertexCount ||
+                that.edgeCount != edgeCount || that.vertexHash != vertexHash ||
+                that.edgeHash != edgeHash)
+            return false;
+        if(coldStorage == null && that.coldStorage == null)
+            return vertexMap.equals(that.vertexMap) && edgeMap.equals(that.edgeMap);
+
+        // As both graphs have the same number of vertices and edges, it's enough to check
+        // that every element of THIS graph is present in the other graph
+        for(String label: labelsOf(vertexMap)){
+            Vertex v = vertex(label);
+            boolean same = v == null || v.equals(that.vertex(label));
+            releaseColdElements();
+            that.releaseColdElements();
+            if(!same)
+                return false;
+        }
+        for(String label: labelsOf(edgeMap)){
+            AdjacencyRow row = row(label);
+            boolean same = row == null || row.equals(that.row(label));
+            releaseColdElements();
+            that.releaseColdElements();
+            if(!same)
+                return false;
+        }
+        return true;
     }
 
+    /**
+     * Order-independent hash of the graph, computed in O(1) from the running hashes
+     * Equal graphs contain equal vertices and edges, hence have equal running hashes
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(vertexMap, edgeMap, directed);
+        int result = 31 * vertexHash + edgeHash;
+        return 31 * result + Boolean.hashCode(directed);
     }
 
     @Override
     public String toString(){
         StringBuilder sb = new StringBuilder();
         sb.append("Vertices map:\n");
-        for(String s: vertexMap.keySet()){
-            sb.append(s).append(":").append(vertexMap.get(s).getCreationTimestamp());
-            sb.append(":").append(vertexMap.get(s).getRemovalTimestamp()).append("\n");
+        for(String s: labelsOf(vertexMap)){
+            Vertex v = vertex(s);
+            if(v != null){
+                sb.append(s).append(":").append(v.getCreationTimestamp());
+                sb.append(":").append(v.getRemovalTimestamp()).append("\n");
+            }
+            releaseColdElements();
         }
         sb.append("***************************************\n");
         sb.append("Edges map:\n");
-        for(String s: edgeMap.keySet()){
-            for(String d: edgeMap.get(s).keySet()){
-                Edge e = edgeMap.get(s).get(d);
-                sb.append(s).append("-").append(d);
-                sb.append(":").append(e.getCreationTimestamp());
-                sb.append(":").append(e.getRemovalTimestamp());
-                sb.append("\n");
+        for(String s: labelsOf(edgeMap)){
+            AdjacencyRow row = row(s);
+            if(row != null){
+                for(Edge e: row.values()){
+                    sb.append(s).append("-").append(e.getDstLabel());
+                    sb.append(":").append(e.getCreationTimestamp());
+                    sb.append(":").append(e.getRemovalTimestamp());
+                    sb.append("\n");
+                }
             }
+            releaseColdElements();
         }
         return sb.toString();
     }
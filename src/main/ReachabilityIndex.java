@@ -0,0 +1,367 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Class ReachabilityIndex - answers reachability queries over the VALID edges of a graph
+ * (see main.LWWElementGraph#isReachable)
+ * For undirected graphs, keeps connected components in a union-find structure
+ * For directed graphs, keeps strongly connected components (SCC) of the graph, and labels every
+ * component with intervals of components reachable from it (interval labeling): components are
+ * numbered in post-order of the DFS forest found by Tarjan's algorithm, so all components in
+ * the DFS subtree of a component form a single interval, and the label of a component is its
+ * subtree interval merged with labels of its successors. A query is a binary search over a label;
+ * labels of tree-like graphs consist of a few intervals, while in the worst case (dense DAGs)
+ * a label might hold an interval per component
+ * The index is built for a snapshot of the graph, and supports adding vertices and edges;
+ * other changes (such as removals) require the index to be rebuilt. Added directed edges are
+ * queued in O(1), and applied on the next query (see main.ReachabilityIndex#flush)
+ */
+class ReachabilityIndex {
+
+    private final boolean directed;
+
+    // ids contains <vertex label, vertex id> key-value pairs, for all active vertices
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private int vertexCount;
+
+    // undirected graphs: union-find parent (or itself for roots) and size of each vertex tree
+    private int[] parent;
+    private int[] treeSize;
+
+    // directed graphs: component of each vertex, and reach[c] - sorted disjoint intervals
+    // [lo0, hi0, lo1, hi1, ...] of components reachable from c
+    private int[] component;
+    private int componentCount;
+    private int[][] reach;
+
+    // directed graphs: number of edges the labels account for
+    private int edgeCount;
+
+    // directed graphs: edges added since the labels were last updated, as pairs of vertex ids
+    private int[] pending = new int[16];
+    private int pendingCount;
+
+    /**
+     * Creates an index for given vertices, which should be built before it's used
+     * (see main.ReachabilityIndex#build)
+     * @param directed Whether the graph is directed
+     * @param vertices Labels of all active vertices
+     */
+    ReachabilityIndex(boolean directed, List<String> vertices){
+        this.directed = directed;
+        for(String label: vertices){
+            ids.put(label, vertexCount++);
+        }
+    }
+
+    /**
+     * Builds the index
+     * @param adjacency Ids of vertices adjacent to each vertex (see main.ReachabilityIndex#idOf),
+     *                  in the same order as vertices were given
+     */
+    void build(List<int[]> adjacency){
+        if(directed)
+            buildComponents(adjacency);
+        else
+            buildUnionFind(adjacency);
+    }
+
+    /**
+     * Obtain id of a vertex with a given label
+     * @return Id of the vertex, or -1 if the vertex is not in the index
+     */
+    int idOf(String label){
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Should be called before queries: applies queued edges, if there are few enough of them
+     * to be applied one by one faster than the index is rebuilt (each edge takes a pass over
+     * all components, while a rebuild takes a pass over the whole graph)
+     * @return false if the index should be rebuilt
+     */
+    boolean flush(){
+        if(pendingCount == 0)
+            return true;
+        long edges = pendingCount / 2;
+        if(edges * componentCount > (long) vertexCount + edgeCount)
+            return false;
+        for(int i = 0; i < pendingCount; i += 2){
+            if(!applyEdge(component[pending[i]], component[pending[i + 1]]))
+                return false;
+        }
+        pendingCount = 0;
+        return true;
+    }
+
+    /**
+     * Answers a query; queued edges should be applied first (see main.ReachabilityIndex#flush)
+     */
+    boolean isReachable(String srcLabel, String dstLabel){
+        Integer src = ids.get(srcLabel);
+        Integer dst = ids.get(dstLabel);
+        if(src == null || dst == null)
+            return false;
+        if(!directed)
+            return find(src) == find(dst);
+        return componentReaches(component[src], component[dst]);
+    }
+
+    /**
+     * Adds an isolated active vertex
+     */
+    void addVertex(String label){
+        if(ids.containsKey(label))
+            return;
+        int id = vertexCount++;
+        ids.put(label, id);
+        if(!directed){
+            parent = grow(parent, vertexCount);
+            treeSize = grow(treeSize, vertexCount);
+            parent[id] = id;
+            treeSize[id] = 1;
+            return;
+        }
+        int c = componentCount++;
+        component = grow(component, vertexCount);
+        component[id] = c;
+        if(reach.length < componentCount)
+            reach = Arrays.copyOf(reach, Math.max(componentCount, reach.length * 2));
+        reach[c] = new int[]{c, c};
+    }
+
+    /**
+     * Adds a valid edge between two active vertices
+     * @return false if the index cannot be updated and should be rebuilt
+     */
+    boolean addEdge(String srcLabel, String dstLabel){
+        Integer src = ids.get(srcLabel);
+        Integer dst = ids.get(dstLabel);
+        if(src == null || dst == null)
+            return false;
+        if(!directed){
+            union(src, dst);
+            return true;
+        }
+        pending = grow(pending, pendingCount + 2);
+        pending[pendingCount++] = src;
+        pending[pendingCount++] = dst;
+        return true;
+    }
+
+    /**
+     * Updates labels for a new edge between components
+     * @return false if the edge closes a cycle, i.e. components have to be merged by a rebuild
+     */
+    private boolean applyEdge(int from, int to){
+        edgeCount++;
+        if(componentReaches(from, to))
+            return true;
+        if(componentReaches(to, from))
+            return false;
+        int[] added = reach[to];
+        for(int c = 0; c < componentCount; c++){
+            if(componentReaches(c, from))
+                reach[c] = mergeIntervals(new int[][]{reach[c], added}, 2);
+        }
+        return true;
+    }
+
+    private boolean componentReaches(int from, int to){
+        if(from == to)
+            return true;
+        int[] intervals = reach[from];
+        // Find the last interval starting at or before `to`
+        int low = 0;
+        int high = intervals.length / 2 - 1;
+        while(low <= high){
+            int mid = (low + high) >>> 1;
+            if(intervals[2 * mid] <= to)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high >= 0 && intervals[2 * high + 1] >= to;
+    }
+
+    private void buildUnionFind(List<int[]> adjacency){
+        parent = new int[vertexCount];
+        treeSize = new int[vertexCount];
+        for(int v = 0; v < vertexCount; v++){
+            parent[v] = v;
+            treeSize[v] = 1;
+        }
+        for(int v = 0; v < vertexCount; v++){
+            for(int w: adjacency.get(v)){
+                union(v, w);
+            }
+        }
+    }
+
+    private int find(int v){
+        while(parent[v] != v){
+            // path halving
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private void union(int a, int b){
+        int rootA = find(a);
+        int rootB = find(b);
+        if(rootA == rootB)
+            return;
+        if(treeSize[rootA] < treeSize[rootB]){
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        }
+        parent[rootB] = rootA;
+        treeSize[rootA] += treeSize[rootB];
+    }
+
+    /**
+     * Finds SCCs with an iterative version of Tarjan's algorithm, then labels components
+     * Components are numbered in order of completion, which is a post-order of the DFS forest
+     * of the condensation: components completed during the DFS call of a component's root
+     * vertex are exactly its subtree, and successors are always numbered below a component
+     */
+    private void buildComponents(List<int[]> adjacency){
+        component = new int[vertexCount];
+        int[] index = new int[vertexCount];
+        int[] low = new int[vertexCount];
+        Arrays.fill(index, -1);
+        // number of components completed before a vertex was discovered
+        int[] entry = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        int[] stack = new int[vertexCount];
+        int stackSize = 0;
+        // call stack of the DFS: vertex, and position in its adjacency
+        int[] callVertex = new int[vertexCount];
+        int[] callEdge = new int[vertexCount];
+        int counter = 0;
+        // first component in the DFS subtree of each component
+        int[] subtreeStart = new int[vertexCount];
+
+        for(int root = 0; root < vertexCount; root++){
+            if(index[root] != -1)
+                continue;
+            int depth = 0;
+            callVertex[0] = root;
+            callEdge[0] = 0;
+            index[root] = low[root] = counter++;
+            entry[root] = componentCount;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            while(depth >= 0){
+                int v = callVertex[depth];
+                int[] adj = adjacency.get(v);
+                if(callEdge[depth] < adj.length){
+                    int w = adj[callEdge[depth]++];
+                    if(index[w] == -1){
+                        index[w] = low[w] = counter++;
+                        entry[w] = componentCount;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callVertex[depth] = w;
+                        callEdge[depth] = 0;
+                    } else if(onStack[w]){
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                if(low[v] == index[v]){
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = componentCount;
+                    } while(w != v);
+                    subtreeStart[componentCount] = entry[v];
+                    componentCount++;
+                }
+                depth--;
+                if(depth >= 0){
+                    int u = callVertex[depth];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+
+        // Group vertices by component, to go through successors of each component
+        int[] offsets = new int[componentCount + 1];
+        for(int v = 0; v < vertexCount; v++){
+            offsets[component[v] + 1]++;
+        }
+        for(int c = 0; c < componentCount; c++){
+            offsets[c + 1] += offsets[c];
+        }
+        int[] members = new int[vertexCount];
+        int[] filled = Arrays.copyOf(offsets, componentCount);
+        for(int v = 0; v < vertexCount; v++){
+            members[filled[component[v]]++] = v;
+        }
+
+        reach = new int[componentCount][];
+        List<int[]> parts = new ArrayList<>();
+        for(int c = 0; c < componentCount; c++){
+            parts.clear();
+            parts.add(new int[]{subtreeStart[c], c});
+            for(int i = offsets[c]; i < offsets[c + 1]; i++){
+                int[] adj = adjacency.get(members[i]);
+                edgeCount += adj.length;
+                for(int w: adj){
+                    // Successors are always numbered below, so their labels are ready; even
+                    // successors within the subtree are needed, as they might reach outside of it
+                    if(component[w] != c)
+                        parts.add(reach[component[w]]);
+                }
+            }
+            reach[c] = mergeIntervals(parts.toArray(new int[0][]), parts.size());
+        }
+    }
+
+    /**
+     * Merges lists of sorted disjoint intervals into one, joining overlapping and adjacent ones
+     */
+    private static int[] mergeIntervals(int[][] lists, int count){
+        if(count == 1)
+            return lists[0];
+        int total = 0;
+        for(int i = 0; i < count; i++){
+            total += lists[i].length / 2;
+        }
+        // An interval packed into a long sorts by its start
+        long[] packed = new long[total];
+        int n = 0;
+        for(int i = 0; i < count; i++){
+            int[] list = lists[i];
+            for(int j = 0; j < list.length; j += 2){
+                packed[n++] = ((long) list[j] << 32) | list[j + 1];
+            }
+        }
+        Arrays.sort(packed);
+        int[] result = new int[2 * total];
+        int size = 0;
+        for(long interval: packed){
+            int lo = (int) (interval >>> 32);
+            int hi = (int) interval;
+            if(size > 0 && lo <= result[size - 1] + 1){
+                result[size - 1] = Math.max(result[size - 1], hi);
+            } else {
+                result[size++] = lo;
+                result[size++] = hi;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static int[] grow(int[] array, int size){
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
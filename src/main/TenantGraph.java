@@ -0,0 +1,202 @@
+package main;
+
+import main.model.LabelFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class TenantGraph - view of a single tenant's graph within a main.GraphContainer
+ * Provides the API of main.LWWElementGraph, storing elements in a graph shared by all tenants
+ * of the container, under labels prefixed with the tenant ID; labels returned by the view
+ * are given without the prefix
+ * Views hold no elements themselves, so they are cheap to create
+ */
+public class TenantGraph {
+
+    private final String tenantId;
+
+    // prefix of labels of this tenant in the shared graph
+    private final String prefix;
+
+    private final LWWElementGraph graph;
+
+    TenantGraph(String tenantId, LWWElementGraph graph){
+        this.tenantId = tenantId;
+        this.prefix = GraphContainer.prefixOf(tenantId);
+        this.graph = graph;
+    }
+
+    public String getTenantId(){
+        return tenantId;
+    }
+
+    public boolean isDirected(){
+        return graph.isDirected();
+    }
+
+    public void addVertex(String label){
+        graph.addVertex(key(label));
+    }
+
+    public void addVertex(String label, long timestamp){
+        graph.addVertex(key(label), timestamp);
+    }
+
+    public void removeVertex(String label){
+        graph.removeVertex(key(label));
+    }
+
+    public void removeVertex(String label, long timestamp){
+        graph.removeVertex(key(label), timestamp);
+    }
+
+    public boolean checkVertexExists(String label){
+        return graph.checkVertexExists(key(label));
+    }
+
+    public long getVertexCreationTimestamp(String label){
+        return graph.getVertexCreationTimestamp(key(label));
+    }
+
+    public long getVertexRemovalTimestamp(String label){
+        return graph.getVertexRemovalTimestamp(key(label));
+    }
+
+    public void addEdge(String srcLabel, String dstLabel){
+        graph.addEdge(key(srcLabel), key(dstLabel));
+    }
+
+    public void addEdge(String srcLabel, String dstLabel, long timestamp){
+        graph.addEdge(key(srcLabel), key(dstLabel), timestamp);
+    }
+
+    public void removeEdge(String srcLabel, String dstLabel){
+        graph.removeEdge(key(srcLabel), key(dstLabel));
+    }
+
+    public void removeEdge(String srcLabel, String dstLabel, long timestamp){
+        graph.removeEdge(key(srcLabel), key(dstLabel), timestamp);
+    }
+
+    public long getEdgeCreationTimestamp(String srcLabel, String dstLabel){
+        return graph.getEdgeCreationTimestamp(key(srcLabel), key(dstLabel));
+    }
+
+    public long getEdgeRemovalTimestamp(String srcLabel, String dstLabel){
+        return graph.getEdgeRemovalTimestamp(key(srcLabel), key(dstLabel));
+    }
+
+    public void setVertexProperty(String label, String key, String value, long timestamp){
+        graph.setVertexProperty(key(label), key, value, timestamp);
+    }
+
+    public String getVertexProperty(String label, String key){
+        return graph.getVertexProperty(key(label), key);
+    }
+
+    public void setEdgeProperty(String srcLabel, String dstLabel, String key, String value, long timestamp){
+        graph.setEdgeProperty(key(srcLabel), key(dstLabel), key, value, timestamp);
+    }
+
+    public String getEdgeProperty(String srcLabel, String dstLabel, String key){
+        return graph.getEdgeProperty(key(srcLabel), key(dstLabel), key);
+    }
+
+    public void setEdgeWeight(String srcLabel, String dstLabel, double weight, long timestamp){
+        graph.setEdgeWeight(key(srcLabel), key(dstLabel), weight, timestamp);
+    }
+
+    public double getEdgeWeight(String srcLabel, String dstLabel){
+        return graph.getEdgeWeight(key(srcLabel), key(dstLabel));
+    }
+
+    public List<String> getAdjacentVertices(String srcLabel){
+        return strip(graph.getAdjacentVertices(key(srcLabel)));
+    }
+
+    public List<String> findPath(String srcLabel, String dstLabel){
+        return strip(graph.findPath(key(srcLabel), key(dstLabel)));
+    }
+
+    public List<String> findShortestPath(String srcLabel, String dstLabel){
+        return strip(graph.findShortestPath(key(srcLabel), key(dstLabel)));
+    }
+
+    /**
+     * Checks whether there is a path between given vertices of this tenant
+     * The tenant has its own reachability index, so changes of other tenants don't discard it
+     * (see main.LWWElementGraph#isReachable(String, String, String))
+     */
+    public boolean isReachable(String srcLabel, String dstLabel){
+        return graph.isReachable(key(srcLabel), key(dstLabel), prefix);
+    }
+
+    /**
+     * Obtain labels of all existing vertices of this tenant starting with a given prefix, in sorted order
+     */
+    public List<String> getVerticesWithPrefix(String labelPrefix){
+        if(labelPrefix == null){
+            System.err.println("Input provided to scan vertices is not valid.");
+            return new ArrayList<>();
+        }
+        return strip(graph.getVerticesWithPrefix(prefix + labelPrefix));
+    }
+
+    /**
+     * Obtain a page of labels of existing vertices of this tenant, in sorted order
+     * (see main.LWWElementGraph#getVertices)
+     */
+    public List<String> getVertices(String afterLabel, int limit){
+        // The bound is always prefixed, so that the page starts within this tenant's labels
+        List<String> page = graph.getVertices(afterLabel == null ? prefix : prefix + afterLabel, limit);
+        List<String> result = new ArrayList<>(page.size());
+        for(String label: page){
+            // The page might run past the last label of this tenant
+            if(!label.startsWith(prefix))
+                break;
+            result.add(label.substring(prefix.length()));
+        }
+        return result;
+    }
+
+    /**
+     * Merges a standalone graph into this tenant's graph
+     * @param other Other graph to be merged with
+     */
+    public void merge(LWWElementGraph other){
+        graph.merge(other, null, label -> prefix + label);
+    }
+
+    /**
+     * Obtain a snapshot of this tenant's graph
+     * @return New standalone graph containing deep copies of all elements of this tenant
+     */
+    public LWWElementGraph toGraph(){
+        LWWElementGraph result = new LWWElementGraph(graph.isDirected());
+        result.merge(graph, LabelFilter.prefix(prefix), this::unprefixed);
+        return result;
+    }
+
+    /**
+     * Helper function to map a label of this tenant to a label of the shared graph
+     * Invalid labels are passed as they are, so that the shared graph rejects them
+     */
+    private String key(String label){
+        if(LWWElementGraph.isBlank(label))
+            return label;
+        return prefix + label;
+    }
+
+    private String unprefixed(String label){
+        return label.startsWith(prefix) ? label.substring(prefix.length()) : null;
+    }
+
+    private List<String> strip(List<String> labels){
+        List<String> result = new ArrayList<>(labels.size());
+        for(String label: labels){
+            result.add(label.substring(prefix.length()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,333 @@
+package main.model;
+
+import java.util.*;
+
+/**
+ * Class AdjacencyRow - all edges outgoing from a single source vertex,
+ * as <destination vertex label, associated Edge> key-value pairs
+ * Additionally keeps the latest creation timestamp among its edges, which serves as an epoch
+ * of the row: once the source vertex is (re)created after that timestamp, every edge in
+ * the row is invalid, and the whole row can be skipped without checking edges one by one
+ * Representation of the row adapts to its degree, as edges are only ever added to it:
+ * - up to SMALL_CAPACITY edges are kept in a small array, scanned linearly
+ * - up to HUB_SIZE edges are kept in an open-addressing table (with linear probing)
+ * - larger rows (hubs) are split into shards, each an open-addressing table, so that
+ *   growing a hub rehashes a single shard rather than the whole row
+ * Edges are keyed by their destination labels, so keys are not stored separately
+ */
+public class AdjacencyRow extends AbstractMap<String, Edge> {
+
+    private static final int SMALL_CAPACITY = 8;
+    private static final int HUB_SIZE = 1 << 14;
+    private static final int SHARD_BITS = 6;
+
+    private static final Edge[] EMPTY = new Edge[0];
+
+    private long latestCreationTimestamp = -1;
+
+    // edges of the row: a small array (filled up to size) if its length is at most SMALL_CAPACITY,
+    // otherwise an open-addressing table; null once the row is split into shards
+    private Edge[] edges;
+
+    // shards of a hub row, each an open-addressing table; null for other rows
+    private Edge[][] shards;
+    private int[] shardSizes;
+
+    private int size;
+
+    public AdjacencyRow(){
+        edges = EMPTY;
+    }
+
+    /**
+     * Creates a row in the representation suitable for a given number of edges
+     * @param expectedSize Expected number of edges
+     */
+    public AdjacencyRow(int expectedSize){
+        if(expectedSize <= SMALL_CAPACITY){
+            edges = expectedSize > 0 ? new Edge[expectedSize] : EMPTY;
+        } else if(expectedSize <= HUB_SIZE){
+            edges = new Edge[tableCapacity(expectedSize)];
+        } else {
+            createShards(expectedSize);
+        }
+    }
+
+    public long getLatestCreationTimestamp(){
+        return latestCreationTimestamp;
+    }
+
+    /**
+     * Should be called every time creation timestamp of an edge in this row moves forward
+     * @param timestamp New creation timestamp of the edge
+     */
+    public void updateLatestCreationTimestamp(long timestamp){
+        if(latestCreationTimestamp < timestamp)
+            latestCreationTimestamp = timestamp;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object dstLabel){
+        return get(dstLabel) != null;
+    }
+
+    @Override
+    public Edge get(Object dstLabel){
+        if(!(dstLabel instanceof String))
+            return null;
+        String key = (String) dstLabel;
+        if(shards != null){
+            int hash = hash(key);
+            return find(shards[hash >>> (32 - SHARD_BITS)], key, hash);
+        }
+        if(edges.length <= SMALL_CAPACITY){
+            for(int i = 0; i < size; i++){
+                if(matches(edges[i], key))
+                    return edges[i];
+            }
+            return null;
+        }
+        return find(edges, key, hash(key));
+    }
+
+    /**
+     * Adds an edge to the row, or replaces an edge with the same destination label
+     * @param dstLabel Destination label of the edge
+     * @param edge Edge to be added
+     * @return Replaced edge, or null if there was no such edge
+     */
+    @Override
+    public Edge put(String dstLabel, Edge edge){
+        if(edge == null || !matches(edge, dstLabel))
+            throw new IllegalArgumentException("Edge should be keyed by its destination label.");
+        updateLatestCreationTimestamp(edge.getCreationTimestamp());
+        if(shards != null)
+            return putToShard(edge);
+        if(edges.length <= SMALL_CAPACITY){
+            for(int i = 0; i < size; i++){
+                if(matches(edges[i], dstLabel)){
+                    Edge previous = edges[i];
+                    edges[i] = edge;
+                    return previous;
+                }
+            }
+            if(size < SMALL_CAPACITY){
+                if(size == edges.length)
+                    edges = Arrays.copyOf(edges, Math.min(SMALL_CAPACITY, Math.max(1, size * 2)));
+                edges[size++] = edge;
+                return null;
+            }
+            edges = rehash(edges, tableCapacity(size + 1));
+        }
+        Edge previous = insert(edges, edge, hash(dstLabel));
+        if(previous == null){
+            size++;
+            if(size > HUB_SIZE){
+                createShards(size);
+            } else if(isOverloaded(size, edges.length)){
+                edges = rehash(edges, edges.length * 2);
+            }
+        }
+        return previous;
+    }
+
+    private Edge putToShard(Edge edge){
+        int hash = hash(edge.getDstLabel());
+        int shard = hash >>> (32 - SHARD_BITS);
+        Edge previous = insert(shards[shard], edge, hash);
+        if(previous == null){
+            size++;
+            shardSizes[shard]++;
+            if(isOverloaded(shardSizes[shard], shards[shard].length))
+                shards[shard] = rehash(shards[shard], shards[shard].length * 2);
+        }
+        return previous;
+    }
+
+    /**
+     * Splits the row into shards, moving edges of the current representation (if any) to them
+     * @param expectedSize Expected number of edges
+     */
+    private void createShards(int expectedSize){
+        Edge[] current = edges;
+        shards = new Edge[1 << SHARD_BITS][];
+        shardSizes = new int[1 << SHARD_BITS];
+        int capacity = tableCapacity(expectedSize >> SHARD_BITS);
+        for(int i = 0; i < shards.length; i++){
+            shards[i] = new Edge[capacity];
+        }
+        edges = null;
+        if(current == null)
+            return;
+        for(Edge edge: current){
+            if(edge != null){
+                int hash = hash(edge.getDstLabel());
+                int shard = hash >>> (32 - SHARD_BITS);
+                insert(shards[shard], edge, hash);
+                shardSizes[shard]++;
+            }
+        }
+    }
+
+    /**
+     * Edges of the row; the row should not be modified while they are iterated over
+     */
+    @Override
+    public Collection<Edge> values(){
+        return new AbstractCollection<Edge>() {
+            @Override
+            public Iterator<Edge> iterator(){
+                return new EdgeIterator();
+            }
+
+            @Override
+            public int size(){
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<String, Edge>> entrySet(){
+        return new AbstractSet<Map.Entry<String, Edge>>() {
+            @Override
+            public Iterator<Map.Entry<String, Edge>> iterator(){
+                Iterator<Edge> edges = new EdgeIterator();
+                return new Iterator<Map.Entry<String, Edge>>() {
+                    @Override
+                    public boolean hasNext(){
+                        return edges.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Edge> next(){
+                        Edge edge = edges.next();
+                        return new AbstractMap.SimpleImmutableEntry<>(edge.getDstLabel(), edge);
+                    }
+                };
+            }
+
+            @Override
+            public int size(){
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates over non-empty slots of the small array/table, or of all shards
+     */
+    private class EdgeIterator implements Iterator<Edge> {
+        private Edge[] table = shards == null ? edges : shards[0];
+        private int shard;
+        private int index;
+        private Edge next;
+
+        EdgeIterator(){
+            advance();
+        }
+
+        private void advance(){
+            while(true){
+                while(index < table.length){
+                    Edge edge = table[index++];
+                    if(edge != null){
+                        next = edge;
+                        return;
+                    }
+                }
+                if(shards == null || ++shard >= shards.length){
+                    next = null;
+                    return;
+                }
+                table = shards[shard];
+                index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next != null;
+        }
+
+        @Override
+        public Edge next(){
+            if(next == null)
+                throw new NoSuchElementException();
+            Edge edge = next;
+            advance();
+            return edge;
+        }
+    }
+
+    private static boolean matches(Edge edge, String dstLabel){
+        // Labels are interned by the graph, so the reference check usually suffices
+        String label = edge.getDstLabel();
+        return label == dstLabel || label.equals(dstLabel);
+    }
+
+    private static int hash(String label){
+        // Fibonacci hashing spreads the hash code over both low bits (slot in a table)
+        // and high bits (shard of a hub row)
+        int hash = label.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static Edge find(Edge[] table, String dstLabel, int hash){
+        int mask = table.length - 1;
+        for(int i = hash & mask; ; i = (i + 1) & mask){
+            Edge edge = table[i];
+            if(edge == null || matches(edge, dstLabel))
+                return edge;
+        }
+    }
+
+    /**
+     * Inserts an edge into an open-addressing table, which should have at least one empty slot
+     * @return Replaced edge with the same destination label, or null if there was no such edge
+     */
+    private static Edge insert(Edge[] table, Edge edge, int hash){
+        int mask = table.length - 1;
+        for(int i = hash & mask; ; i = (i + 1) & mask){
+            Edge current = table[i];
+            if(current == null){
+                table[i] = edge;
+                return null;
+            }
+            if(matches(current, edge.getDstLabel())){
+                table[i] = edge;
+                return current;
+            }
+        }
+    }
+
+    private static Edge[] rehash(Edge[] table, int capacity){
+        Edge[] result = new Edge[capacity];
+        for(Edge edge: table){
+            if(edge != null)
+                insert(result, edge, hash(edge.getDstLabel()));
+        }
+        return result;
+    }
+
+    private static boolean isOverloaded(int size, int capacity){
+        // Tables are kept at most 3/4 full
+        return size * 4L > capacity * 3L;
+    }
+
+    /**
+     * Obtain the smallest power of two capacity of a table that can hold a given number of edges
+     */
+    private static int tableCapacity(int size){
+        int capacity = 16;
+        while(isOverloaded(size, capacity)){
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
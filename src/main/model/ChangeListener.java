@@ -0,0 +1,13 @@
+package main.model;
+
+/**
+ * Interface ChangeListener - receives effective changes of elements made by a merge
+ * (see main.LWWElementGraph#merge(main.LWWElementGraph, ChangeListener))
+ * Flags of a change are a combination of main.model.ChangeSet constants
+ */
+public interface ChangeListener {
+
+    void vertexChanged(String label, int flags, long creationTimestamp, long removalTimestamp);
+
+    void edgeChanged(String srcLabel, String dstLabel, int flags, long creationTimestamp, long removalTimestamp);
+}
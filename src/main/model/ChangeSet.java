@@ -0,0 +1,111 @@
+package main.model;
+
+import java.util.Arrays;
+
+/**
+ * Class ChangeSet - compact record of effective changes of elements made by a merge
+ * (see main.LWWElementGraph#mergeWithChanges)
+ * Changes are kept in parallel arrays rather than as objects: i-th change is described by
+ * its labels, flags and the new timestamps of the element
+ * Note that validity of an edge also depends on its vertices, so consumers interested in
+ * valid edges should take changes of vertices into account too
+ */
+public class ChangeSet implements ChangeListener {
+
+    // creation timestamp of the element moved forward
+    public static final int CREATED = 1;
+    // removal timestamp of the element moved forward
+    public static final int REMOVED = 1 << 1;
+    // the element was not active before the merge, and is active after it
+    public static final int ACTIVATED = 1 << 2;
+    // the element was active before the merge, and is not active after it
+    public static final int DEACTIVATED = 1 << 3;
+    // properties (or weight, for edges) of the element changed
+    public static final int PROPERTIES = 1 << 4;
+
+    private String[] labels = new String[16];
+    // destination labels of edges, null for vertices
+    private String[] dstLabels = new String[16];
+    private int[] flags = new int[16];
+    private long[] creationTimestamps = new long[16];
+    private long[] removalTimestamps = new long[16];
+    private int size;
+
+    @Override
+    public void vertexChanged(String label, int flags, long creationTimestamp, long removalTimestamp){
+        add(label, null, flags, creationTimestamp, removalTimestamp);
+    }
+
+    @Override
+    public void edgeChanged(String srcLabel, String dstLabel, int flags, long creationTimestamp, long removalTimestamp){
+        add(srcLabel, dstLabel, flags, creationTimestamp, removalTimestamp);
+    }
+
+    private void add(String label, String dstLabel, int flags, long creationTimestamp, long removalTimestamp){
+        if(size == labels.length){
+            int capacity = size * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            dstLabels = Arrays.copyOf(dstLabels, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            creationTimestamps = Arrays.copyOf(creationTimestamps, capacity);
+            removalTimestamps = Arrays.copyOf(removalTimestamps, capacity);
+        }
+        labels[size] = label;
+        dstLabels[size] = dstLabel;
+        this.flags[size] = flags;
+        creationTimestamps[size] = creationTimestamp;
+        removalTimestamps[size] = removalTimestamp;
+        size++;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    public boolean isVertex(int i){
+        return dstLabels[i] == null;
+    }
+
+    /**
+     * Obtain label of a changed vertex, or source label of a changed edge
+     */
+    public String getLabel(int i){
+        return labels[i];
+    }
+
+    /**
+     * Obtain destination label of a changed edge, or null for a changed vertex
+     */
+    public String getDstLabel(int i){
+        return dstLabels[i];
+    }
+
+    public int getFlags(int i){
+        return flags[i];
+    }
+
+    public boolean hasFlag(int i, int flag){
+        return (flags[i] & flag) != 0;
+    }
+
+    public long getCreationTimestamp(int i){
+        return creationTimestamps[i];
+    }
+
+    public long getRemovalTimestamp(int i){
+        return removalTimestamps[i];
+    }
+
+    /**
+     * Removes all changes, keeping the allocated arrays for reuse
+     */
+    public void clear(){
+        Arrays.fill(labels, 0, size, null);
+        Arrays.fill(dstLabels, 0, size, null);
+        size = 0;
+    }
+}
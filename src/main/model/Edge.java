@@ -1,13 +1,13 @@
 package main.model;
 
-import java.util.Objects;
-
-public class Edge {
+public class Edge extends Element {
     private final String srcLabel;
     private final String dstLabel;
     private long creationTimestamp;
     private long removalTimestamp;
 
+    public static final double DEFAULT_WEIGHT = 1.0;
+
     public Edge(String srcLabel, String dstLabel, long creationTimestamp, long removalTimestamp){
         this.srcLabel = srcLabel;
         this.dstLabel = dstLabel;
@@ -50,17 +50,63 @@ public class Edge {
         return creationTimestamp > removalTimestamp;
     }
 
+    /**
+     * Obtain weight of the edge; a plain edge has never had its weight set
+     * (see main.model.WeightedEdge)
+     */
+    public double getWeight(){
+        return DEFAULT_WEIGHT;
+    }
+
+    public long getWeightTimestamp(){
+        return -1;
+    }
+
+    /**
+     * Checks whether a write would change weight of the edge with Last-Write-Wins semantics
+     * If timestamps are equal, the greater weight wins
+     * @param weight New weight
+     * @param timestamp Timestamp of the write
+     * @return true if the write wins over the current weight
+     */
+    public boolean acceptsWeight(double weight, long timestamp){
+        return timestamp > getWeightTimestamp() ||
+                (timestamp == getWeightTimestamp() && Double.compare(weight, getWeight()) > 0);
+    }
+
+    /**
+     * Obtain an edge which can hold a weight, with the same state as this edge
+     * @return This edge if it's already weighted, otherwise a new main.model.WeightedEdge
+     *         sharing properties of this edge, which should replace it in its row
+     */
+    public WeightedEdge toWeighted(){
+        WeightedEdge copy = new WeightedEdge(srcLabel, dstLabel, creationTimestamp, removalTimestamp);
+        copy.shareProperties(this);
+        return copy;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        // Plain and weighted edges are compared by their state, as a weighted edge is only
+        // a plain edge after its weight is set
+        if (!(o instanceof Edge)) return false;
         Edge edge = (Edge) o;
         return creationTimestamp == edge.creationTimestamp && removalTimestamp == edge.removalTimestamp &&
-                srcLabel.equals(edge.srcLabel) && dstLabel.equals(edge.dstLabel);
+                srcLabel.equals(edge.srcLabel) && dstLabel.equals(edge.dstLabel) &&
+                Double.compare(getWeight(), edge.getWeight()) == 0 && getWeightTimestamp() == edge.getWeightTimestamp() &&
+                PropertyMap.equals(getProperties(), edge.getProperties());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(srcLabel, dstLabel, creationTimestamp, removalTimestamp);
+        // Computed without allocation, see main.model.Vertex#hashCode
+        int result = 31 + srcLabel.hashCode();
+        result = 31 * result + dstLabel.hashCode();
+        result = 31 * result + Long.hashCode(creationTimestamp);
+        result = 31 * result + Long.hashCode(removalTimestamp);
+        result = 31 * result + Double.hashCode(getWeight());
+        result = 31 * result + Long.hashCode(getWeightTimestamp());
+        return 31 * result + PropertyMap.hashCode(getProperties());
     }
 }
@@ -0,0 +1,44 @@
+package main.model;
+
+/**
+ * Class Element - base class of graph elements (vertices and edges), holding their properties
+ */
+public abstract class Element {
+
+    // properties of this element, created lazily as most elements don't have any
+    private PropertyMap properties;
+
+    public String getProperty(String key){
+        return properties == null ? null : properties.get(key);
+    }
+
+    /**
+     * Obtain properties of this element
+     * @return Property map, or null if no property has ever been set
+     */
+    public PropertyMap getProperties(){
+        return properties;
+    }
+
+    public boolean setProperty(String key, String value, long timestamp){
+        if(properties == null)
+            properties = new PropertyMap();
+        return properties.set(key, value, timestamp);
+    }
+
+    /**
+     * Makes this element use properties of another element; used when an element is replaced
+     * by a copy of a different class (see main.model.Edge#toWeighted)
+     */
+    void shareProperties(Element other){
+        properties = other.properties;
+    }
+
+    public boolean mergeProperties(PropertyMap other){
+        if(other == null || other.isEmpty())
+            return false;
+        if(properties == null)
+            properties = new PropertyMap();
+        return properties.merge(other);
+    }
+}
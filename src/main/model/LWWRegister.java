@@ -0,0 +1,53 @@
+package main.model;
+
+/**
+ * Class LWWRegister - immutable value of a Last-Write-Wins register
+ * A register holding a LATER timestamp always wins; if timestamps are equal,
+ * the register with the greater value wins, so that concurrent writes resolve
+ * the same way on every replica regardless of the order they are applied in
+ */
+public final class LWWRegister {
+    private final String value;
+    private final long timestamp;
+
+    public LWWRegister(String value, long timestamp){
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    public String getValue(){
+        return value;
+    }
+
+    public long getTimestamp(){
+        return timestamp;
+    }
+
+    /**
+     * Checks whether this register should replace another one
+     * @param other Register currently in place, might be null
+     * @return true if this register wins over the other one
+     */
+    public boolean winsOver(LWWRegister other){
+        if(other == null || timestamp != other.timestamp)
+            return other == null || timestamp > other.timestamp;
+        if(value == null || other.value == null)
+            return value != null && other.value == null;
+        return value.compareTo(other.value) > 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LWWRegister register = (LWWRegister) o;
+        return timestamp == register.timestamp &&
+                (value == null ? register.value == null : value.equals(register.value));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 31 + (value == null ? 0 : value.hashCode());
+        return 31 * result + Long.hashCode(timestamp);
+    }
+}
@@ -0,0 +1,34 @@
+package main.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class LabelDictionary - keeps a single canonical instance of every label seen by a graph
+ * Vertices, edges and the keys of the internal maps all refer to the canonical instance,
+ * so a label repeated across many edges is stored on the heap only once, its hash code
+ * is computed only once, and equality checks between canonical labels are reference checks
+ */
+public class LabelDictionary {
+
+    // labels contains <label, canonical label instance> key-value pairs
+    private final Map<String, String> labels = new HashMap<>();
+
+    /**
+     * Obtain the canonical instance of a given label, registering it if it's not known yet
+     * @param label Label to be canonicalized
+     * @return Canonical instance equal to the given label
+     */
+    public String intern(String label){
+        String canonical = labels.putIfAbsent(label, label);
+        return canonical == null ? label : canonical;
+    }
+
+    public boolean contains(String label){
+        return labels.containsKey(label);
+    }
+
+    public int size(){
+        return labels.size();
+    }
+}
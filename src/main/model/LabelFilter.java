@@ -0,0 +1,52 @@
+package main.model;
+
+import java.util.function.Predicate;
+
+/**
+ * Class LabelFilter - predicate on vertex labels, used for partial replication
+ * (see main.LWWElementGraph#extract and main.LWWElementGraph#merge)
+ * Besides arbitrary predicates, provides the common filters for partitioning a graph:
+ * by label prefix (e.g. `tenant:`), and by hash bucket of a label
+ */
+public class LabelFilter implements Predicate<String> {
+
+    private final Predicate<String> predicate;
+
+    // prefix all the accepted labels start with, null if the filter is not a prefix filter
+    private final String prefix;
+
+    private LabelFilter(Predicate<String> predicate, String prefix){
+        this.predicate = predicate;
+        this.prefix = prefix;
+    }
+
+    public static LabelFilter of(Predicate<String> predicate){
+        return new LabelFilter(predicate, null);
+    }
+
+    /**
+     * Accepts labels starting with a given prefix
+     */
+    public static LabelFilter prefix(String prefix){
+        return new LabelFilter(label -> label.startsWith(prefix), prefix);
+    }
+
+    /**
+     * Accepts labels whose hash falls into a given bucket, out of a given number of buckets
+     * Filters for all buckets 0..buckets-1 partition the set of labels
+     */
+    public static LabelFilter hashBucket(int bucket, int buckets){
+        if(buckets <= 0 || bucket < 0 || bucket >= buckets)
+            throw new IllegalArgumentException("Bucket should be within [0, buckets).");
+        return new LabelFilter(label -> Math.floorMod(label.hashCode(), buckets) == bucket, null);
+    }
+
+    public String getPrefix(){
+        return prefix;
+    }
+
+    @Override
+    public boolean test(String label){
+        return predicate.test(label);
+    }
+}
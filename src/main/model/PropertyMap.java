@@ -0,0 +1,94 @@
+package main.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Class PropertyMap - properties of a single vertex/edge, as <property key, LWWRegister>
+ * key-value pairs; each property is resolved independently with Last-Write-Wins semantics
+ * Null values are allowed, and a property set to null serves as a removed property
+ */
+public class PropertyMap {
+
+    private final Map<String, LWWRegister> registers = new HashMap<>(4);
+
+    public String get(String key){
+        LWWRegister register = registers.get(key);
+        return register == null ? null : register.getValue();
+    }
+
+    public LWWRegister getRegister(String key){
+        return registers.get(key);
+    }
+
+    public Set<String> keySet(){
+        return Collections.unmodifiableSet(registers.keySet());
+    }
+
+    public boolean isEmpty(){
+        return registers.isEmpty();
+    }
+
+    /**
+     * Sets a property, if the given write wins over the current value
+     * @param key Property key
+     * @param value Property value
+     * @param timestamp Timestamp of the write
+     * @return true if the property has changed
+     */
+    public boolean set(String key, String value, long timestamp){
+        return set(key, new LWWRegister(value, timestamp));
+    }
+
+    public boolean set(String key, LWWRegister register){
+        if(register.winsOver(registers.get(key))){
+            registers.put(key, register);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Merges all properties of another map into this one
+     * Registers are immutable, so they can be shared between maps
+     * @param other Other property map
+     * @return true if any property has changed
+     */
+    public boolean merge(PropertyMap other){
+        boolean changed = false;
+        for(Map.Entry<String, LWWRegister> entry: other.registers.entrySet()){
+            changed |= set(entry.getKey(), entry.getValue());
+        }
+        return changed;
+    }
+
+    /**
+     * Compares property maps of two elements, where null stands for no properties
+     */
+    public static boolean equals(PropertyMap a, PropertyMap b){
+        if(a == null || b == null)
+            return (a == null || a.isEmpty()) && (b == null || b.isEmpty());
+        return a.equals(b);
+    }
+
+    /**
+     * Hash code of a property map of an element, where null stands for no properties
+     */
+    public static int hashCode(PropertyMap properties){
+        return properties == null ? 0 : properties.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return registers.equals(((PropertyMap) o).registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return registers.hashCode();
+    }
+}
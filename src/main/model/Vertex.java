@@ -1,8 +1,6 @@
 package main.model;
 
-import java.util.Objects;
-
-public class Vertex {
+public class Vertex extends Element {
     private final String label;
     private long creationTimestamp;
     private long removalTimestamp;
@@ -49,11 +47,17 @@ public class Vertex {
         if (o == null || getClass() != o.getClass()) return false;
         Vertex vertex = (Vertex) o;
         return creationTimestamp == vertex.creationTimestamp &&
-                removalTimestamp == vertex.removalTimestamp && label.equals(vertex.label);
+                removalTimestamp == vertex.removalTimestamp && label.equals(vertex.label) &&
+                PropertyMap.equals(getProperties(), vertex.getProperties());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(label, creationTimestamp, removalTimestamp);
+        // Computed without allocating a varargs array (as Objects.hash would do),
+        // as the graph rehashes vertices on every update
+        int result = 31 + label.hashCode();
+        result = 31 * result + Long.hashCode(creationTimestamp);
+        result = 31 * result + Long.hashCode(removalTimestamp);
+        return 31 * result + PropertyMap.hashCode(getProperties());
     }
 }
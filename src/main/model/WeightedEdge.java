@@ -0,0 +1,46 @@
+package main.model;
+
+/**
+ * Class WeightedEdge - edge whose weight has been set
+ * The weight is kept inline as a primitive LWW register (weight, weightTimestamp), so weighted
+ * traversals can read it without going through the property map; as most edges never have
+ * their weight set, plain edges don't carry the register, and an edge is replaced by
+ * a weighted copy on its first weight write (see main.model.Edge#toWeighted)
+ */
+public class WeightedEdge extends Edge {
+    private double weight = DEFAULT_WEIGHT;
+    private long weightTimestamp = -1;
+
+    public WeightedEdge(String srcLabel, String dstLabel, long creationTimestamp, long removalTimestamp){
+        super(srcLabel, dstLabel, creationTimestamp, removalTimestamp);
+    }
+
+    @Override
+    public double getWeight(){
+        return weight;
+    }
+
+    @Override
+    public long getWeightTimestamp(){
+        return weightTimestamp;
+    }
+
+    /**
+     * Sets weight of the edge with Last-Write-Wins semantics (see main.model.Edge#acceptsWeight)
+     * @param weight New weight
+     * @param timestamp Timestamp of the write
+     * @return true if the weight has changed
+     */
+    public boolean setWeight(double weight, long timestamp){
+        if(!acceptsWeight(weight, timestamp))
+            return false;
+        this.weight = weight;
+        this.weightTimestamp = timestamp;
+        return true;
+    }
+
+    @Override
+    public WeightedEdge toWeighted(){
+        return this;
+    }
+}
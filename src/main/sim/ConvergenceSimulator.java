@@ -0,0 +1,317 @@
+package main.sim;
+
+import main.LWWElementGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Class ConvergenceSimulator - deterministic simulation of several LWWElementGraph replicas
+ * Random operations are applied to random replicas, and random pairs of replicas are merged
+ * in between. At the end all replicas exchange their states, and the simulation checks that
+ * every replica has converged to a single reference graph (oracle), which gets every operation
+ * The oracle is built by replaying the operations after throughput and heap are measured,
+ * so the reported numbers cover the replicas only
+ * All randomness comes from a single seed, so a run can be reproduced exactly
+ * Can be run from the command line for long soak runs, e.g.:
+ *     java main.sim.ConvergenceSimulator replicas=8 operations=10000000 hubSkew=3 seed=7
+ */
+public class ConvergenceSimulator {
+
+    private int replicas = 4;
+    private int operations = 10_000;
+    private int vertexCount = 1_000;
+    private boolean directed = false;
+    // share of add (vs remove) operations
+    private double addRatio = 0.75;
+    // share of edge (vs vertex) operations
+    private double edgeRatio = 0.5;
+    // skew of label choice: 1 is uniform, greater values favor a few hub vertices
+    private double hubSkew = 1;
+    // maximal offset of a replica's clock from the global clock
+    private int clockSkew = 0;
+    // probability of merging a random pair of replicas after each operation
+    private double mergeProbability = 0.01;
+    private long seed = 0;
+
+    // Setters report invalid values and keep the current ones
+
+    public ConvergenceSimulator setReplicas(int replicas){
+        if(replicas < 1){
+            System.err.println("Number of replicas should be positive.");
+            return this;
+        }
+        this.replicas = replicas;
+        return this;
+    }
+
+    public ConvergenceSimulator setOperations(int operations){
+        if(operations < 0){
+            System.err.println("Number of operations should not be negative.");
+            return this;
+        }
+        this.operations = operations;
+        return this;
+    }
+
+    public ConvergenceSimulator setVertexCount(int vertexCount){
+        if(vertexCount < 1){
+            System.err.println("Number of vertices should be positive.");
+            return this;
+        }
+        this.vertexCount = vertexCount;
+        return this;
+    }
+
+    public ConvergenceSimulator setDirected(boolean directed){
+        this.directed = directed;
+        return this;
+    }
+
+    public ConvergenceSimulator setAddRatio(double addRatio){
+        if(!(addRatio >= 0 && addRatio <= 1)){
+            System.err.println("Add ratio should be between 0 and 1.");
+            return this;
+        }
+        this.addRatio = addRatio;
+        return this;
+    }
+
+    public ConvergenceSimulator setEdgeRatio(double edgeRatio){
+        if(!(edgeRatio >= 0 && edgeRatio <= 1)){
+            System.err.println("Edge ratio should be between 0 and 1.");
+            return this;
+        }
+        this.edgeRatio = edgeRatio;
+        return this;
+    }
+
+    public ConvergenceSimulator setHubSkew(double hubSkew){
+        if(!(hubSkew > 0) || Double.isInfinite(hubSkew)){
+            System.err.println("Hub skew should be positive.");
+            return this;
+        }
+        this.hubSkew = hubSkew;
+        return this;
+    }
+
+    public ConvergenceSimulator setClockSkew(int clockSkew){
+        if(clockSkew < 0 || clockSkew == Integer.MAX_VALUE){
+            System.err.println("Clock skew should be between 0 and Integer.MAX_VALUE - 1.");
+            return this;
+        }
+        this.clockSkew = clockSkew;
+        return this;
+    }
+
+    public ConvergenceSimulator setMergeProbability(double mergeProbability){
+        if(!(mergeProbability >= 0 && mergeProbability <= 1)){
+            System.err.println("Merge probability should be between 0 and 1.");
+            return this;
+        }
+        this.mergeProbability = mergeProbability;
+        return this;
+    }
+
+    public ConvergenceSimulator setSeed(long seed){
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Class Report - results of a single simulation run
+     */
+    public static class Report {
+        private final int operations;
+        private final int merges;
+        private final long mergeNanos;
+        private final long elapsedNanos;
+        private final long heapGrowth;
+        private final double tombstoneRatio;
+        private final boolean converged;
+        private final int finalHash;
+
+        private Report(int operations, int merges, long mergeNanos, long elapsedNanos,
+                       long heapGrowth, double tombstoneRatio, boolean converged, int finalHash){
+            this.operations = operations;
+            this.merges = merges;
+            this.mergeNanos = mergeNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.heapGrowth = heapGrowth;
+            this.tombstoneRatio = tombstoneRatio;
+            this.converged = converged;
+            this.finalHash = finalHash;
+        }
+
+        public int getMerges(){
+            return merges;
+        }
+
+        public double getAverageMergeMillis(){
+            return merges == 0 ? 0 : mergeNanos / 1e6 / merges;
+        }
+
+        public double getOperationsPerSecond(){
+            return elapsedNanos == 0 ? 0 : operations * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Approximate growth of used heap during the run, in bytes
+         */
+        public long getHeapGrowth(){
+            return heapGrowth;
+        }
+
+        /**
+         * Share of vertices/edges of the converged graph that are tombstones
+         */
+        public double getTombstoneRatio(){
+            return tombstoneRatio;
+        }
+
+        public boolean isConverged(){
+            return converged;
+        }
+
+        /**
+         * Hash code of the converged graph, equal for runs with the same configuration
+         */
+        public int getFinalHash(){
+            return finalHash;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("converged: %s%noperations: %d (%.0f ops/sec)%nmerges: %d (avg %.3f ms)%n" +
+                            "heap growth: %.1f MB%ntombstone ratio: %.3f",
+                    converged, operations, getOperationsPerSecond(), merges, getAverageMergeMillis(),
+                    heapGrowth / (1024.0 * 1024.0), tombstoneRatio);
+        }
+    }
+
+    /**
+     * Runs the simulation
+     * @return Report of the run
+     */
+    public Report run(){
+        List<LWWElementGraph> graphs = new ArrayList<>();
+        for(int i = 0; i < replicas; i++){
+            graphs.add(new LWWElementGraph(directed));
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        // [number of merges, nanoseconds spent in merges]
+        long[] mergeStats = new long[2];
+        simulate(graphs, null, mergeStats);
+
+        // Final anti-entropy round: gather everything in the first replica, then spread it back
+        long mergeStart = System.nanoTime();
+        for(int i = 1; i < replicas; i++){
+            graphs.get(0).merge(graphs.get(i));
+        }
+        for(int i = 1; i < replicas; i++){
+            graphs.get(i).merge(graphs.get(0));
+        }
+        mergeStats[1] += System.nanoTime() - mergeStart;
+        mergeStats[0] += 2 * (replicas - 1);
+        long elapsedNanos = System.nanoTime() - start;
+        long heapGrowth = usedHeap() - heapBefore;
+
+        // The oracle is built after the measurements, by replaying the same operations
+        LWWElementGraph oracle = new LWWElementGraph(directed);
+        simulate(graphs, oracle, null);
+        boolean converged = true;
+        for(LWWElementGraph graph: graphs){
+            converged &= graph.equals(oracle);
+        }
+        LWWElementGraph result = graphs.get(0);
+        int elements = result.getVertexCount() + result.getEdgeCount();
+        double tombstoneRatio = elements == 0 ? 0 : (double) result.getTombstoneCount() / elements;
+        return new Report(operations, (int) mergeStats[0], mergeStats[1], elapsedNanos, heapGrowth,
+                tombstoneRatio, converged, result.hashCode());
+    }
+
+    /**
+     * Generates operations (and merges) from the seed
+     * @param graphs Replicas, operations and merges are applied to them unless oracle is given
+     * @param oracle Reference graph to apply all operations to instead, without any merges; might be null
+     * @param mergeStats Number of merges and time spent in them, updated if oracle is null
+     */
+    private void simulate(List<LWWElementGraph> graphs, LWWElementGraph oracle, long[] mergeStats){
+        Random random = new Random(seed);
+        long[] clockOffsets = new long[replicas];
+        for(int i = 0; i < replicas; i++){
+            clockOffsets[i] = clockSkew == 0 ? 0 : random.nextInt(clockSkew + 1);
+        }
+        for(int tick = 0; tick < operations; tick++){
+            int replica = random.nextInt(replicas);
+            LWWElementGraph graph = oracle != null ? oracle : graphs.get(replica);
+            long timestamp = tick + clockOffsets[replica];
+            boolean add = random.nextDouble() < addRatio;
+            String src = pickLabel(random);
+            if(random.nextDouble() < edgeRatio){
+                String dst = pickLabel(random);
+                if(add) graph.addEdge(src, dst, timestamp);
+                else graph.removeEdge(src, dst, timestamp);
+            } else {
+                if(add) graph.addVertex(src, timestamp);
+                else graph.removeVertex(src, timestamp);
+            }
+
+            if(replicas > 1 && random.nextDouble() < mergeProbability){
+                int into = random.nextInt(replicas);
+                int from = (into + 1 + random.nextInt(replicas - 1)) % replicas;
+                if(oracle == null){
+                    long mergeStart = System.nanoTime();
+                    graphs.get(into).merge(graphs.get(from));
+                    mergeStats[1] += System.nanoTime() - mergeStart;
+                    mergeStats[0]++;
+                }
+            }
+        }
+    }
+
+    private String pickLabel(Random random){
+        // u^skew concentrates on small indexes as skew grows, which makes them hubs
+        int index = (int) (vertexCount * Math.pow(random.nextDouble(), hubSkew));
+        return "v" + Math.min(index, vertexCount - 1);
+    }
+
+    private static long usedHeap(){
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public static void main(String[] args){
+        ConvergenceSimulator simulator = new ConvergenceSimulator();
+        for(String arg: args){
+            String[] pair = arg.split("=", 2);
+            if(pair.length != 2){
+                System.err.println("Arguments should be provided as key=value pairs: " + arg);
+                return;
+            }
+            switch (pair[0]) {
+                case "replicas": simulator.setReplicas(Integer.parseInt(pair[1])); break;
+                case "operations": simulator.setOperations(Integer.parseInt(pair[1])); break;
+                case "vertexCount": simulator.setVertexCount(Integer.parseInt(pair[1])); break;
+                case "directed": simulator.setDirected(Boolean.parseBoolean(pair[1])); break;
+                case "addRatio": simulator.setAddRatio(Double.parseDouble(pair[1])); break;
+                case "edgeRatio": simulator.setEdgeRatio(Double.parseDouble(pair[1])); break;
+                case "hubSkew": simulator.setHubSkew(Double.parseDouble(pair[1])); break;
+                case "clockSkew": simulator.setClockSkew(Integer.parseInt(pair[1])); break;
+                case "mergeProbability": simulator.setMergeProbability(Double.parseDouble(pair[1])); break;
+                case "seed": simulator.setSeed(Long.parseLong(pair[1])); break;
+                default:
+                    System.err.println("Unknown argument: " + pair[0]);
+                    return;
+            }
+        }
+        Report report = simulator.run();
+        System.out.println(report);
+        if(!report.isConverged())
+            System.exit(1);
+    }
+}
@@ -0,0 +1,341 @@
+package main.storage;
+
+import main.LWWElementGraph;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Class BulkLoader - loads a graph from an edge-list file
+ * Each line of the file describes a single operation: `src,dst,timestamp,op`, where
+ * op is either CREATE or REMOVE (case-insensitive); if dst is empty, the operation is
+ * performed on vertex src, otherwise on edge src-dst. Empty lines and lines starting with
+ * '#' are skipped. Labels are taken as they are: no quoting, no trimming
+ * The file is memory-mapped in chunks split at line boundaries, and chunks are parsed in parallel
+ * into compact buffers of operations. Chunks are applied to the graph in file order, on the calling
+ * thread (as LWWElementGraph is not thread-safe), while following chunks are still being parsed;
+ * only a bounded number of chunks is parsed ahead, and each chunk is dropped once applied, so
+ * memory used by the loader doesn't grow with the size of the file.
+ * As LWW operations commute, the result is the same as applying every line in order
+ * with addVertex/addEdge/...
+ */
+public final class BulkLoader {
+
+    // minimal size of a chunk, so that small files are not split into too many chunks
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    // maximal size of a chunk, which bounds memory taken by parsed operations of a chunk
+    private static final long MAX_CHUNK_SIZE = 4 << 20;
+
+    // number of chunks parsed ahead of the applied one, per available processor
+    private static final int CHUNKS_AHEAD = 2;
+
+    private static final byte[] CREATE = "CREATE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REMOVE = "REMOVE".getBytes(StandardCharsets.US_ASCII);
+
+    private BulkLoader(){
+    }
+
+    /**
+     * Loads a new graph from a file
+     * @param file Edge-list file
+     * @param directed Whether the graph is directed
+     * @return Loaded graph
+     * @throws IOException If the file cannot be read
+     */
+    public static LWWElementGraph load(Path file, boolean directed) throws IOException {
+        LWWElementGraph graph = new LWWElementGraph(directed);
+        loadInto(graph, file);
+        return graph;
+    }
+
+    /**
+     * Applies all operations of a file to an existing graph
+     * @param graph Graph to be updated
+     * @param file Edge-list file
+     * @throws IOException If the file cannot be read
+     */
+    public static void loadInto(LWWElementGraph graph, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            int ahead = CHUNKS_AHEAD * Runtime.getRuntime().availableProcessors();
+            Deque<CompletableFuture<Operations>> parsing = new ArrayDeque<>();
+            int next = 0;
+            while(next < chunks.size() || !parsing.isEmpty()){
+                while(next < chunks.size() && parsing.size() < ahead){
+                    long[] chunk = chunks.get(next++);
+                    parsing.add(CompletableFuture.supplyAsync(() -> parseChunk(channel, chunk[0], chunk[1])));
+                }
+                Operations operations;
+                try {
+                    operations = parsing.poll().join();
+                } catch (CompletionException e) {
+                    // Chunks still being parsed only read the file, so they can be left to finish
+                    if(e.getCause() instanceof UncheckedIOException)
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    throw e;
+                }
+                operations.applyTo(graph);
+            }
+        }
+    }
+
+    /**
+     * Class Operations - operations parsed from a chunk, kept in parallel arrays
+     */
+    private static final class Operations {
+        private String[] srcLabels = new String[1024];
+        // destination labels of edge operations, null for vertex operations
+        private String[] dstLabels = new String[1024];
+        private long[] timestamps = new long[1024];
+        private boolean[] creates = new boolean[1024];
+        private int size;
+
+        private void add(String srcLabel, String dstLabel, long timestamp, boolean create){
+            if(size == srcLabels.length){
+                int capacity = size * 2;
+                srcLabels = Arrays.copyOf(srcLabels, capacity);
+                dstLabels = Arrays.copyOf(dstLabels, capacity);
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                creates = Arrays.copyOf(creates, capacity);
+            }
+            srcLabels[size] = srcLabel;
+            dstLabels[size] = dstLabel;
+            timestamps[size] = timestamp;
+            creates[size] = create;
+            size++;
+        }
+
+        private void applyTo(LWWElementGraph graph){
+            for(int i = 0; i < size; i++){
+                String src = srcLabels[i];
+                String dst = dstLabels[i];
+                if(dst == null){
+                    if(creates[i])
+                        graph.addVertex(src, timestamps[i]);
+                    else
+                        graph.removeVertex(src, timestamps[i]);
+                } else {
+                    if(creates[i])
+                        graph.addEdge(src, dst, timestamps[i]);
+                    else
+                        graph.removeEdge(src, dst, timestamps[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a file into chunks of roughly equal size, each ending at a line boundary
+     * @return List of [start, end) positions of chunks
+     */
+    private static List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long start = 0;
+        while(start < size){
+            long end = Math.min(size, start + chunkSize);
+            if(end < size)
+                end = nextLineStart(channel, end - 1, size, buffer);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds the first line break at or after a given position, reading the file a buffer at a time
+     * @return Position right after the line break, or size of the file if there is none
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        while(position < size){
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if(read <= 0)
+                break;
+            for(int i = 0; i < read; i++){
+                if(buffer.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Class LabelCache - labels decoded within a chunk, looked up by their bytes in an
+     * open-addressing table, so repeated labels share a single String and are not decoded again
+     */
+    private static final class LabelCache {
+        private byte[][] keys = new byte[256][];
+        private int[] hashes = new int[256];
+        private String[] values = new String[256];
+        private int size;
+
+        private String get(ByteBuffer buffer, int from, int to){
+            int hash = 0;
+            for(int i = from; i < to; i++){
+                hash = 31 * hash + buffer.get(i);
+            }
+            int mask = keys.length - 1;
+            for(int i = spread(hash) & mask; ; i = (i + 1) & mask){
+                byte[] key = keys[i];
+                if(key == null){
+                    key = new byte[to - from];
+                    for(int j = 0; j < key.length; j++){
+                        key[j] = buffer.get(from + j);
+                    }
+                    String label = new String(key, StandardCharsets.UTF_8);
+                    keys[i] = key;
+                    hashes[i] = hash;
+                    values[i] = label;
+                    // The table is kept at most half full
+                    if(++size * 2 > keys.length)
+                        grow();
+                    return label;
+                }
+                if(hashes[i] == hash && sameBytes(buffer, from, to, key))
+                    return values[i];
+            }
+        }
+
+        private void grow(){
+            byte[][] oldKeys = keys;
+            int[] oldHashes = hashes;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            hashes = new int[keys.length];
+            values = new String[keys.length];
+            int mask = keys.length - 1;
+            for(int j = 0; j < oldKeys.length; j++){
+                if(oldKeys[j] == null)
+                    continue;
+                int i = spread(oldHashes[j]) & mask;
+                while(keys[i] != null){
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                hashes[i] = oldHashes[j];
+                values[i] = oldValues[j];
+            }
+        }
+
+        private static int spread(int hash){
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+
+        private static boolean sameBytes(ByteBuffer buffer, int from, int to, byte[] key){
+            if(to - from != key.length)
+                return false;
+            for(int i = 0; i < key.length; i++){
+                if(buffer.get(from + i) != key[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static Operations parseChunk(FileChannel channel, long start, long end){
+        Operations operations = new Operations();
+        LabelCache labels = new LabelCache();
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int lineStart = 0;
+        int limit = buffer.limit();
+        for(int i = 0; i <= limit; i++){
+            if(i == limit || buffer.get(i) == '\n'){
+                int lineEnd = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                if(lineEnd > lineStart && buffer.get(lineStart) != '#')
+                    parseLine(buffer, lineStart, lineEnd, operations, labels);
+                lineStart = i + 1;
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Parses a single line [from, to) of a buffer and adds it to parsed operations
+     * Fields are decoded right from the buffer, only labels are turned into strings
+     */
+    private static void parseLine(ByteBuffer buffer, int from, int to, Operations operations,
+                                  LabelCache labels){
+        int[] commas = new int[3];
+        int found = 0;
+        for(int i = from; i < to; i++){
+            if(buffer.get(i) == ','){
+                if(found == commas.length){
+                    found++;
+                    break;
+                }
+                commas[found++] = i;
+            }
+        }
+        long timestamp = found == commas.length ? parseTimestamp(buffer, commas[1] + 1, commas[2]) : -1;
+        boolean create = timestamp >= 0 && matches(buffer, commas[2] + 1, to, CREATE);
+        boolean remove = timestamp >= 0 && matches(buffer, commas[2] + 1, to, REMOVE);
+        if(!create && !remove){
+            System.err.println("Skipping invalid line of the bulk-load file: " + decode(buffer, from, to));
+            return;
+        }
+        String src = labels.get(buffer, from, commas[0]);
+        String dst = commas[1] == commas[0] + 1 ? null : labels.get(buffer, commas[0] + 1, commas[1]);
+        operations.add(src, dst, timestamp, create);
+    }
+
+    /**
+     * Parses a non-negative decimal number
+     * @return Parsed number, or -1 if it's not a valid number
+     */
+    private static long parseTimestamp(ByteBuffer buffer, int from, int to){
+        if(from == to || to - from > 18)
+            return -1;
+        long result = 0;
+        for(int i = from; i < to; i++){
+            byte b = buffer.get(i);
+            if(b < '0' || b > '9')
+                return -1;
+            result = result * 10 + (b - '0');
+        }
+        return result;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, int to, byte[] expected){
+        if(to - from != expected.length)
+            return false;
+        for(int i = 0; i < expected.length; i++){
+            // ASCII letters only differ in case by 0x20
+            if((buffer.get(from + i) & ~0x20) != expected[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to){
+        byte[] bytes = new byte[to - from];
+        for(int i = 0; i < bytes.length; i++){
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
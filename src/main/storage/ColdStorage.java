@@ -0,0 +1,319 @@
+package main.storage;
+
+import main.model.AdjacencyRow;
+import main.model.LabelDictionary;
+import main.model.Vertex;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Class ColdStorage - on-disk tier for graph elements which are not in the working set
+ * Elements are evicted and loaded per vertex label: a record holds the vertex with the given
+ * label and the row of edges outgoing from it (either one might be missing)
+ * Hot labels are tracked with a CLOCK policy: every access sets the `referenced` bit of
+ * a label, and the eviction sweep gives referenced labels a second chance
+ * Records are appended to segment files; a segment is deleted once none of its records is live,
+ * and compacted (its live records are copied to the active segment) once most of its bytes are dead,
+ * so the disk usage stays within about twice the size of live records plus one segment
+ * Only elements are moved to disk: the index of cold labels (a boxed address per label) stays in
+ * memory, so memory used by the cold tier grows with the number of cold labels, not their edges
+ * Each instance keeps its segments in its own subdirectory of the given directory, which is
+ * deleted on close; subdirectories left behind by instances that were never closed (e.g. after
+ * a crash) are not reused, and should be cleaned up by the owner of the directory
+ */
+public class ColdStorage implements Closeable {
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+
+    // address of a record is <segment id> << OFFSET_BITS | <offset within the segment>
+    private static final int OFFSET_BITS = 40;
+
+    // subdirectory owned by this instance
+    private final Path directory;
+
+    // maximum number of labels kept in memory
+    private final int hotCapacity;
+
+    // size at which a new active segment is started
+    private final long segmentSize;
+
+    // clock contains hot labels in CLOCK order, with their `referenced` bits
+    private final LinkedHashMap<String, Boolean> clock = new LinkedHashMap<>();
+
+    // index contains <cold label, address of its record> key-value pairs
+    private final Map<String, Long> index = new HashMap<>();
+
+    // segments contains <segment id, segment> key-value pairs
+    private final Map<Integer, Segment> segments = new HashMap<>();
+
+    private Segment active;
+
+    /**
+     * Class Record - vertex and row of edges of a single label, loaded from the cold storage
+     */
+    public static class Record {
+        private final Vertex vertex;
+        private final AdjacencyRow row;
+
+        private Record(Vertex vertex, AdjacencyRow row){
+            this.vertex = vertex;
+            this.row = row;
+        }
+
+        public Vertex getVertex(){
+            return vertex;
+        }
+
+        public AdjacencyRow getRow(){
+            return row;
+        }
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private int liveRecords;
+        // total size of live records, the rest of the segment is dead
+        private long liveBytes;
+        // labels and offsets of all records appended to the segment, in order; a record is
+        // live if the index still points at its offset
+        private final List<String> labels = new ArrayList<>();
+        private long[] offsets = new long[16];
+
+        private Segment(int id, Path path) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    public ColdStorage(Path directory, int hotCapacity) throws IOException {
+        this(directory, hotCapacity, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a cold storage in a new subdirectory of a given directory
+     * @param directory Parent directory of segment files, created if missing
+     * @param hotCapacity Maximum number of labels kept in memory
+     * @param segmentSize Size at which a new segment file is started
+     * @throws IOException If the subdirectory cannot be created
+     */
+    public ColdStorage(Path directory, int hotCapacity, long segmentSize) throws IOException {
+        if(hotCapacity < 1 || segmentSize < 1)
+            throw new IllegalArgumentException("Hot capacity and segment size should be positive.");
+        this.directory = Files.createTempDirectory(Files.createDirectories(directory), "cold-");
+        this.hotCapacity = hotCapacity;
+        this.segmentSize = segmentSize;
+        this.active = newSegment(0);
+    }
+
+    /**
+     * Marks a hot label as referenced, registering it if it's not tracked yet
+     * @param label Canonical label
+     */
+    public void touch(String label){
+        clock.put(label, Boolean.TRUE);
+    }
+
+    public boolean isCold(String label){
+        return index.containsKey(label);
+    }
+
+    /**
+     * Obtain all the cold labels
+     * @return Snapshot of cold labels
+     */
+    public List<String> labels(){
+        return new ArrayList<>(index.keySet());
+    }
+
+    public int size(){
+        return index.size();
+    }
+
+    public boolean needsEviction(){
+        return clock.size() > hotCapacity;
+    }
+
+    /**
+     * Runs the CLOCK sweep until it finds a label that wasn't referenced since the last sweep
+     * The label is no longer tracked as hot once returned, and should be stored by the caller
+     * @return Label to be evicted
+     */
+    public String nextVictim(){
+        while(true){
+            Map.Entry<String, Boolean> head = clock.entrySet().iterator().next();
+            String label = head.getKey();
+            clock.remove(label);
+            if(!head.getValue())
+                return label;
+            // second chance: clear the `referenced` bit and move the label to the tail
+            clock.put(label, Boolean.FALSE);
+        }
+    }
+
+    /**
+     * Writes vertex and row of edges of a label to disk
+     * @param label Canonical label
+     * @param vertex Vertex with this label, might be null
+     * @param row Row of edges outgoing from this label, might be null
+     */
+    public void store(String label, Vertex vertex, AdjacencyRow row){
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeBoolean(vertex != null);
+            if(vertex != null)
+                ElementCodec.writeVertex(out, vertex);
+            out.writeBoolean(row != null);
+            if(row != null)
+                ElementCodec.writeRow(out, row);
+            out.flush();
+            append(label, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write to cold storage.", e);
+        }
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new one if the active one is full
+     * @param label Canonical label
+     * @param record Encoded vertex and row of edges
+     */
+    private void append(String label, byte[] record) throws IOException {
+        Segment sealed = null;
+        if(active.liveRecords == 0 && active.size > 0){
+            // all records of the active segment were loaded back, reuse it from the start
+            active.channel.truncate(0);
+            active.size = 0;
+            active.labels.clear();
+        } else if(active.size > 0 && active.size + record.length + Integer.BYTES > segmentSize){
+            sealed = active;
+            active = newSegment(active.id + 1);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(record.length + Integer.BYTES);
+        buffer.putInt(record.length).put(record).flip();
+        long offset = active.size;
+        while(buffer.hasRemaining()){
+            active.size += active.channel.write(buffer, active.size);
+        }
+        active.liveRecords++;
+        active.liveBytes += record.length + Integer.BYTES;
+        if(active.offsets.length == active.labels.size())
+            active.offsets = Arrays.copyOf(active.offsets, active.offsets.length * 2);
+        active.offsets[active.labels.size()] = offset;
+        active.labels.add(label);
+        index.put(label, ((long) active.id << OFFSET_BITS) | offset);
+        if(sealed != null)
+            reclaim(sealed);
+    }
+
+    /**
+     * Reads vertex and row of edges of a cold label back, the label becomes hot
+     * @param label Cold label
+     * @param labels Dictionary to canonicalize labels with
+     * @return Record of the label, or null if the label is not cold
+     */
+    public Record load(String label, LabelDictionary labels){
+        Long address = index.remove(label);
+        if(address == null)
+            return null;
+        Segment segment = segments.get((int) (address >>> OFFSET_BITS));
+        try {
+            byte[] record = read(segment, address);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+
+            String canonical = labels.intern(label);
+            Vertex vertex = in.readBoolean() ? ElementCodec.readVertex(in, canonical) : null;
+            AdjacencyRow row = in.readBoolean() ? ElementCodec.readRow(in, canonical, labels) : null;
+            touch(canonical);
+            segment.liveRecords--;
+            segment.liveBytes -= record.length + Integer.BYTES;
+            reclaim(segment);
+            return new Record(vertex, row);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read from cold storage.", e);
+        }
+    }
+
+    private static byte[] read(Segment segment, long address) throws IOException {
+        long offset = address & ((1L << OFFSET_BITS) - 1);
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(segment.channel, length, offset);
+        ByteBuffer buffer = ByteBuffer.allocate(length.getInt(0));
+        readFully(segment.channel, buffer, offset + Integer.BYTES);
+        return buffer.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            int read = channel.read(buffer, position + buffer.position());
+            if(read < 0)
+                throw new EOFException();
+        }
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Segment segment = new Segment(id, directory.resolve("segment-" + id + ".dat"));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Reclaims space of a segment which is not active: deletes it once it has no live records,
+     * or compacts it once more than half of its bytes are dead
+     */
+    private void reclaim(Segment segment) throws IOException {
+        if(segment == active || segment.liveBytes * 2 >= segment.size)
+            return;
+        // Live records are found through labels of the segment, rather than a scan of the index
+        for(int i = 0; i < segment.labels.size() && segment.liveRecords > 0; i++){
+            String label = segment.labels.get(i);
+            long address = ((long) segment.id << OFFSET_BITS) | segment.offsets[i];
+            Long current = index.get(label);
+            if(current != null && current == address){
+                segment.liveRecords--;
+                append(label, read(segment, address));
+            }
+        }
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+        segments.remove(segment.id);
+    }
+
+    /**
+     * Obtain total size of segment files
+     */
+    public long getDiskSize(){
+        long size = 0;
+        for(Segment segment: segments.values()){
+            size += segment.size;
+        }
+        return size;
+    }
+
+    /**
+     * Closes and deletes all segments along with the subdirectory of this instance;
+     * cold elements are lost, so they should be loaded first
+     */
+    @Override
+    public void close() throws IOException {
+        for(Segment segment: segments.values()){
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+        Files.deleteIfExists(directory);
+        segments.clear();
+        index.clear();
+        clock.clear();
+    }
+}
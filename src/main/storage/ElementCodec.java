@@ -0,0 +1,119 @@
+package main.storage;
+
+import main.model.AdjacencyRow;
+import main.model.Edge;
+import main.model.LWWRegister;
+import main.model.LabelDictionary;
+import main.model.PropertyMap;
+import main.model.Vertex;
+import main.model.WeightedEdge;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class ElementCodec - binary encoding of vertices and rows of edges
+ * Labels of elements are not written with the element itself: a vertex is stored under its
+ * label, and a row of edges under its source vertex label, so the caller provides them on reading
+ * Labels read back are canonicalized through the given main.model.LabelDictionary
+ */
+public final class ElementCodec {
+
+    private ElementCodec(){
+    }
+
+    public static void writeVertex(DataOutput out, Vertex vertex) throws IOException {
+        out.writeLong(vertex.getCreationTimestamp());
+        out.writeLong(vertex.getRemovalTimestamp());
+        writeProperties(out, vertex.getProperties());
+    }
+
+    public static Vertex readVertex(DataInput in, String label) throws IOException {
+        Vertex vertex = new Vertex(label, in.readLong(), in.readLong());
+        vertex.mergeProperties(readProperties(in));
+        return vertex;
+    }
+
+    public static void writeRow(DataOutput out, AdjacencyRow row) throws IOException {
+        out.writeInt(row.size());
+        for(Edge edge: row.values()){
+            writeString(out, edge.getDstLabel());
+            out.writeLong(edge.getCreationTimestamp());
+            out.writeLong(edge.getRemovalTimestamp());
+            out.writeDouble(edge.getWeight());
+            out.writeLong(edge.getWeightTimestamp());
+            writeProperties(out, edge.getProperties());
+        }
+    }
+
+    public static AdjacencyRow readRow(DataInput in, String srcLabel, LabelDictionary labels) throws IOException {
+        int size = in.readInt();
+        AdjacencyRow row = new AdjacencyRow(size);
+        for(int i = 0; i < size; i++){
+            String dstLabel = labels.intern(readString(in));
+            long creationTimestamp = in.readLong();
+            long removalTimestamp = in.readLong();
+            double weight = in.readDouble();
+            long weightTimestamp = in.readLong();
+            Edge edge;
+            if(weightTimestamp < 0){
+                edge = new Edge(srcLabel, dstLabel, creationTimestamp, removalTimestamp);
+            } else {
+                WeightedEdge weighted = new WeightedEdge(srcLabel, dstLabel, creationTimestamp, removalTimestamp);
+                weighted.setWeight(weight, weightTimestamp);
+                edge = weighted;
+            }
+            edge.mergeProperties(readProperties(in));
+            row.put(dstLabel, edge);
+        }
+        return row;
+    }
+
+    /**
+     * Writes a string of any length as UTF-8 bytes
+     * (DataOutput#writeUTF is limited to 64KB, which is not enough for property values)
+     */
+    public static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeProperties(DataOutput out, PropertyMap properties) throws IOException {
+        if(properties == null){
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(properties.keySet().size());
+        for(String key: properties.keySet()){
+            LWWRegister register = properties.getRegister(key);
+            writeString(out, key);
+            out.writeLong(register.getTimestamp());
+            out.writeBoolean(register.getValue() != null);
+            if(register.getValue() != null)
+                writeString(out, register.getValue());
+        }
+    }
+
+    private static PropertyMap readProperties(DataInput in) throws IOException {
+        int size = in.readInt();
+        if(size == 0)
+            return null;
+        PropertyMap properties = new PropertyMap();
+        for(int i = 0; i < size; i++){
+            String key = readString(in);
+            long timestamp = in.readLong();
+            String value = in.readBoolean() ? readString(in) : null;
+            properties.set(key, value, timestamp);
+        }
+        return properties;
+    }
+}
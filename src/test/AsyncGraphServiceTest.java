@@ -0,0 +1,88 @@
+package test;
+
+import main.AsyncGraphService;
+import main.LWWElementGraph;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class AsyncGraphServiceTest {
+
+    @Test
+    public void testConcurrentWrites(){
+        LWWElementGraph graph = new LWWElementGraph();
+        try (AsyncGraphService service = new AsyncGraphService(graph)) {
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for(int i = 0; i < 1000; i++){
+                writes.add(service.addVertex("V" + i, 1));
+            }
+            for(int i = 1; i < 1000; i++){
+                writes.add(service.addEdge("V" + (i - 1), "V" + i, 2));
+            }
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0])).join();
+
+            for(int i = 0; i < 1000; i++){
+                assertTrue(graph.checkVertexExists("V" + i));
+            }
+            // Path exists once all the edges are in
+            assertEquals(1000, service.findPath("V0", "V999").join().size());
+            assertEquals(2, service.getAdjacentVertices("V500").join().size());
+        }
+    }
+
+    @Test
+    public void testWritesToSameVertex(){
+        LWWElementGraph graph = new LWWElementGraph();
+        try (AsyncGraphService service = new AsyncGraphService(graph)) {
+            // LWW operations commute, so the outcome doesn't depend on the order writes run in
+            CompletableFuture<Void> add = service.addVertex("A", 5);
+            CompletableFuture<Void> remove = service.removeVertex("A", 10);
+            CompletableFuture<Void> readd = service.addVertex("A", 15);
+            CompletableFuture.allOf(add, remove, readd).join();
+
+            assertTrue(service.checkVertexExists("A").join());
+            assertEquals(15, graph.getVertexCreationTimestamp("A"));
+            assertEquals(10, graph.getVertexRemovalTimestamp("A"));
+
+            LWWElementGraph other = new LWWElementGraph();
+            other.addVertex("B", 1);
+            other.addEdge("A", "B", 20);
+            service.merge(other).join();
+            assertEquals(2, service.findPath("A", "B").join().size());
+
+            // Invalid input should not break the service
+            service.addVertex(null, 1).join();
+            assertFalse(service.checkVertexExists(null).join());
+        }
+    }
+
+    @Test
+    public void testConcurrentReadsOfTieredGraph() throws IOException {
+        LWWElementGraph graph = new LWWElementGraph();
+        Path directory = Files.createTempDirectory("lww-async");
+        graph.enableColdStorage(directory, 10);
+        for(int i = 0; i < 200; i++){
+            graph.addVertex("V" + i, 1);
+        }
+        // Reads load cold elements back, so they have to run one at a time
+        try (AsyncGraphService service = new AsyncGraphService(graph)) {
+            List<CompletableFuture<Boolean>> reads = new ArrayList<>();
+            for(int i = 0; i < 200; i++){
+                reads.add(service.checkVertexExists("V" + i));
+            }
+            for(CompletableFuture<Boolean> read: reads){
+                assertTrue(read.join());
+            }
+        } finally {
+            graph.disableColdStorage();
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package test;
+
+import main.LWWElementGraph;
+import main.storage.BulkLoader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BulkLoaderTest {
+
+    @Test
+    public void testLoad() throws IOException {
+        Path file = Files.createTempFile("lww-bulk", ".csv");
+        Files.write(file, Arrays.asList(
+                "# src,dst,timestamp,op",
+                "A,,1,CREATE",
+                "B,,2,create",
+                "C,,3,CREATE",
+                "A,B,4,CREATE",
+                "B,C,5,CREATE\r",
+                "",
+                "C,,6,REMOVE",
+                "A,B,3,REMOVE",
+                "not a valid line",
+                "A,C,x,CREATE",
+                "A,C,7,UPDATE"), StandardCharsets.UTF_8);
+
+        LWWElementGraph graph = BulkLoader.load(file, false);
+        LWWElementGraph expected = new LWWElementGraph();
+        expected.addVertex("A", 1);
+        expected.addVertex("B", 2);
+        expected.addVertex("C", 3);
+        expected.addEdge("A", "B", 4);
+        expected.addEdge("B", "C", 5);
+        expected.removeVertex("C", 6);
+        expected.removeEdge("A", "B", 3);
+        assertEquals(expected, graph);
+        assertTrue(graph.getAdjacentVertices("A").contains("B"));
+        assertFalse(graph.checkVertexExists("C"));
+
+        // Loading into an existing graph is the same as applying every line to it
+        LWWElementGraph existing = new LWWElementGraph();
+        existing.addVertex("D", 1);
+        BulkLoader.loadInto(existing, file);
+        expected.addVertex("D", 1);
+        assertEquals(expected, existing);
+        Files.delete(file);
+    }
+
+    @Test
+    public void testLoadInParallelChunks() throws IOException {
+        // Large enough to be split into several chunks
+        Path file = Files.createTempFile("lww-bulk", ".csv");
+        Random random = new Random(42);
+        LWWElementGraph expected = new LWWElementGraph(true);
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < 200_000; i++){
+            String src = "vertex-" + random.nextInt(5000);
+            String dst = random.nextBoolean() ? "" : "vertex-" + random.nextInt(5000);
+            long timestamp = random.nextInt(1_000_000);
+            boolean create = random.nextInt(4) > 0;
+            sb.append(src).append(',').append(dst).append(',').append(timestamp)
+                    .append(',').append(create ? "CREATE" : "REMOVE").append('\n');
+            if(dst.isEmpty()){
+                if(create) expected.addVertex(src, timestamp);
+                else expected.removeVertex(src, timestamp);
+            } else {
+                if(create) expected.addEdge(src, dst, timestamp);
+                else expected.removeEdge(src, dst, timestamp);
+            }
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        assertTrue(Files.size(file) > 2 << 20);
+
+        LWWElementGraph graph = BulkLoader.load(file, true);
+        assertEquals(expected, graph);
+        assertEquals(expected.hashCode(), graph.hashCode());
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,68 @@
+package test;
+
+import main.model.LabelDictionary;
+import main.model.Vertex;
+import main.storage.ColdStorage;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ColdStorageTest {
+
+    @Test
+    public void testDiskSizeUnderChurn() throws IOException {
+        Path directory = Files.createTempDirectory("lww-cold");
+        long segmentSize = 64 << 10;
+        LabelDictionary labels = new LabelDictionary();
+        try(ColdStorage storage = new ColdStorage(directory, 1, segmentSize)){
+            // A few long-lived records, and a label which is evicted and loaded back over and over
+            for(int i = 0; i < 14; i++){
+                Vertex v = new Vertex("V" + i, 1);
+                v.setProperty("payload", new String(new char[1000]), 1);
+                storage.store("V" + i, v, null);
+            }
+            Vertex hot = new Vertex("hot", 1);
+            hot.setProperty("payload", new String(new char[1000]), 1);
+            for(int round = 0; round < 2000; round++){
+                storage.store("hot", hot, null);
+                hot = storage.load("hot", labels).getVertex();
+                assertEquals(1, hot.getCreationTimestamp());
+            }
+            long live = 15 * 1100;
+            assertTrue(storage.getDiskSize() <= 2 * live + segmentSize);
+            assertTrue(directorySize(directory) <= 2 * live + segmentSize);
+            for(int i = 0; i < 14; i++){
+                assertEquals(1000, storage.load("V" + i, labels).getVertex().getProperty("payload").length());
+            }
+        }
+        assertEquals(0, directorySize(directory));
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testSharedDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("lww-cold");
+        // A segment left behind by an earlier run
+        Files.createFile(directory.resolve("segment-0.dat"));
+        try(ColdStorage first = new ColdStorage(directory, 1);
+            ColdStorage second = new ColdStorage(directory, 1)){
+            first.store("A", new Vertex("A", 1), null);
+            second.store("A", new Vertex("A", 2), null);
+            assertEquals(1, first.load("A", new LabelDictionary()).getVertex().getCreationTimestamp());
+            assertEquals(2, second.load("A", new LabelDictionary()).getVertex().getCreationTimestamp());
+        }
+        Files.delete(directory.resolve("segment-0.dat"));
+        Files.delete(directory);
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try(Stream<Path> files = Files.walk(directory)){
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package test;
+
+import main.sim.ConvergenceSimulator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ConvergenceSimulatorTest {
+
+    @Test
+    public void testReplicasConverge(){
+        ConvergenceSimulator.Report report = new ConvergenceSimulator()
+                .setReplicas(5)
+                .setOperations(20_000)
+                .setVertexCount(200)
+                .setAddRatio(0.6)
+                .setHubSkew(3)
+                .setClockSkew(50)
+                .setMergeProbability(0.05)
+                .setSeed(1)
+                .run();
+        assertTrue(report.isConverged());
+        assertTrue(report.getMerges() > 0);
+        assertTrue(report.getTombstoneRatio() > 0);
+        assertTrue(report.getTombstoneRatio() < 1);
+    }
+
+    @Test
+    public void testDirectedReplicasConverge(){
+        ConvergenceSimulator.Report report = new ConvergenceSimulator()
+                .setDirected(true)
+                .setReplicas(3)
+                .setOperations(10_000)
+                .setEdgeRatio(0.8)
+                .setMergeProbability(0)
+                .setSeed(2)
+                .run();
+        assertTrue(report.isConverged());
+        assertEquals(4, report.getMerges());
+    }
+
+    @Test
+    public void testSimulationIsDeterministic(){
+        ConvergenceSimulator simulator = new ConvergenceSimulator()
+                .setOperations(5_000)
+                .setClockSkew(10)
+                .setSeed(3);
+        assertEquals(simulator.run().getFinalHash(), simulator.run().getFinalHash());
+        assertNotEquals(simulator.run().getFinalHash(), simulator.setSeed(4).run().getFinalHash());
+    }
+
+    @Test
+    public void testInvalidSettingsAreIgnored(){
+        ConvergenceSimulator.Report report = new ConvergenceSimulator()
+                .setOperations(2_000)
+                .setReplicas(0)
+                .setVertexCount(0)
+                .setClockSkew(-1)
+                .setHubSkew(Double.NaN)
+                .setMergeProbability(2)
+                .setSeed(5)
+                .run();
+        ConvergenceSimulator.Report expected = new ConvergenceSimulator()
+                .setOperations(2_000)
+                .setSeed(5)
+                .run();
+        assertTrue(report.isConverged());
+        assertEquals(expected.getFinalHash(), report.getFinalHash());
+    }
+}
@@ -0,0 +1,132 @@
+package test;
+
+import main.GraphContainer;
+import main.LWWElementGraph;
+import main.TenantGraph;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class GraphContainerTest {
+
+    @Test
+    public void testTenantsAreIsolated(){
+        GraphContainer container = new GraphContainer();
+        TenantGraph a = container.createTenant("a", false);
+        TenantGraph ab = container.createTenant("ab", true);
+        assertSame(a, container.createTenant("a", false));
+        assertNull(container.createTenant("a", true));
+        assertNull(container.createTenant("a\0b", true));
+        assertNull(container.createTenant(" ", true));
+        assertEquals(2, container.getTenantCount());
+
+        a.addVertex("X", 1);
+        a.addVertex("Y", 2);
+        a.addEdge("X", "Y", 3);
+        ab.addVertex("X", 1);
+        assertTrue(a.checkVertexExists("Y"));
+        assertFalse(ab.checkVertexExists("Y"));
+        assertEquals(Arrays.asList("X"), a.getAdjacentVertices("Y"));
+        assertTrue(ab.getAdjacentVertices("X").isEmpty());
+        assertEquals(Arrays.asList("X", "Y"), a.findPath("X", "Y"));
+        assertTrue(a.isReachable("Y", "X"));
+        assertEquals(Arrays.asList("X", "Y"), a.getVertices(null, 10));
+        assertEquals(Arrays.asList("X", "Y"), a.getVertices("", 10));
+        assertEquals(Arrays.asList("Y"), a.getVertices("X", 10));
+        assertEquals(Arrays.asList("X"), ab.getVertices(null, 10));
+
+        // Snapshot of a tenant is a standalone graph
+        LWWElementGraph expected = new LWWElementGraph();
+        expected.addVertex("X", 1);
+        expected.addVertex("Y", 2);
+        expected.addEdge("X", "Y", 3);
+        assertEquals(expected, a.toGraph());
+
+        // Standalone graph merged into a tenant
+        LWWElementGraph update = new LWWElementGraph(true);
+        update.addVertex("Z", 4);
+        update.addEdge("X", "Z", 5);
+        ab.merge(update);
+        assertEquals(Arrays.asList("Z"), ab.getAdjacentVertices("X"));
+        assertFalse(a.checkVertexExists("Z"));
+    }
+
+    @Test
+    public void testReachabilityPerTenant(){
+        GraphContainer container = new GraphContainer();
+        for(int t = 0; t < 10; t++){
+            TenantGraph tenant = container.createTenant("tenant" + t, true);
+            tenant.addVertex("A", 1);
+            tenant.addVertex("B", 1);
+            tenant.addVertex("C", 1);
+            tenant.addEdge("A", "B", 2);
+            tenant.addEdge("B", "C", 2);
+        }
+        TenantGraph first = container.getTenant("tenant0");
+        TenantGraph second = container.getTenant("tenant1");
+        assertTrue(first.isReachable("A", "C"));
+        assertTrue(second.isReachable("A", "C"));
+        assertFalse(first.isReachable("C", "A"));
+
+        // Changes of a tenant are seen by its own queries only
+        second.removeEdge("B", "C", 3);
+        first.addEdge("C", "A", 3);
+        assertFalse(second.isReachable("A", "C"));
+        assertTrue(first.isReachable("C", "B"));
+        assertTrue(container.getTenant("tenant2").isReachable("A", "C"));
+        second.addVertex("D", 4);
+        second.addEdge("A", "D", 5);
+        assertTrue(second.isReachable("A", "D"));
+        assertFalse(first.isReachable("A", "D"));
+
+        // Merged changes discard indexes of the changed tenants
+        GraphContainer update = new GraphContainer();
+        update.createTenant("tenant2", true).removeVertex("B", 6);
+        container.merge(update);
+        assertFalse(container.getTenant("tenant2").isReachable("A", "C"));
+        assertTrue(container.getTenant("tenant3").isReachable("A", "C"));
+        assertTrue(first.isReachable("C", "B"));
+    }
+
+    @Test
+    public void testMergeAndSnapshot() throws IOException {
+        GraphContainer first = new GraphContainer();
+        GraphContainer second = new GraphContainer();
+        for(int t = 0; t < 50; t++){
+            TenantGraph tenant = first.createTenant("tenant" + t, t % 2 == 0);
+            tenant.addVertex("A", 1);
+            tenant.addVertex("B", 2);
+            tenant.addEdge("A", "B", 3);
+            tenant.setVertexProperty("A", "name", "tenant" + t, 4);
+        }
+        second.createTenant("tenant0", true).removeEdge("A", "B", 5);
+        second.createTenant("other", false).addVertex("C", 1);
+
+        GraphContainer snapshot = first.snapshot();
+        assertEquals(first, snapshot);
+        first.merge(second);
+        assertNotEquals(first, snapshot);
+        assertEquals(51, first.getTenantCount());
+        assertTrue(first.getTenant("tenant0").getAdjacentVertices("A").isEmpty());
+        assertEquals(Arrays.asList("B"), first.getTenant("tenant2").getAdjacentVertices("A"));
+        assertTrue(first.getTenant("other").checkVertexExists("C"));
+        // The snapshot is not affected
+        assertEquals(Arrays.asList("B"), snapshot.getTenant("tenant0").getAdjacentVertices("A"));
+
+        Path file = Files.createTempFile("lww-container", ".bin");
+        try {
+            first.save(file);
+            GraphContainer loaded = GraphContainer.load(file);
+            assertEquals(first, loaded);
+            assertEquals("tenant7", loaded.getTenant("tenant7").getVertexProperty("A", "name"));
+            assertFalse(loaded.getTenant("tenant7").isDirected());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package test;
 
 import main.LWWElementGraph;
+import main.model.ChangeSet;
+import main.model.LabelFilter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.*;
 
 public class LWWElementGraphTest {
@@ -24,6 +33,13 @@ public class LWWElementGraphTest {
         assertEquals(-1, replica.getVertexCreationTimestamp("B"));
         replica.addVertex("", 0);
         assertFalse(replica.checkVertexExists(""));
+        replica.addVertex(" \t ", 0);
+        assertFalse(replica.checkVertexExists(" \t "));
+
+        // Labels with surrounding whitespace are kept as they are
+        replica.addVertex(" D ", 0);
+        assertTrue(replica.checkVertexExists(" D "));
+        assertFalse(replica.checkVertexExists("D"));
 
         // Test adding a vertex with a PAST timestamp
         // Expect no changes
@@ -248,6 +264,38 @@ public class LWWElementGraphTest {
         assertEquals(0, replica.getAdjacentVertices("C").size());
     }
 
+    @Test
+    public void testVertexRecreationInvalidatesEdges(){
+        LWWElementGraph replica = new LWWElementGraph();
+        replica.addVertex("H", 1);
+        for(String label: new String[]{"A", "B", "C", "D"}){
+            replica.addVertex(label, 1);
+            replica.addEdge("H", label, 2);
+        }
+        assertEquals(4, replica.getAdjacentVertices("H").size());
+
+        // Remove and recreate the hub - all of its previous edges should be invalid
+        replica.removeVertex("H", 3);
+        replica.addVertex("H", 4);
+        assertEquals(0, replica.getAdjacentVertices("H").size());
+        assertEquals(0, replica.getAdjacentVertices("A").size());
+
+        // Edges created at the same time as the hub, or later, are valid again
+        replica.addEdge("H", "A", 4);
+        replica.addEdge("H", "B", 5);
+        assertEquals(2, replica.getAdjacentVertices("H").size());
+        assertTrue(replica.getAdjacentVertices("H").contains("A"));
+        assertTrue(replica.getAdjacentVertices("B").contains("H"));
+        assertEquals(0, replica.getAdjacentVertices("C").size());
+
+        // Merging in an edge with a later creation timestamp revives it as well
+        LWWElementGraph other = new LWWElementGraph();
+        other.addEdge("H", "C", 6);
+        replica.merge(other);
+        assertEquals(3, replica.getAdjacentVertices("H").size());
+        assertTrue(replica.getAdjacentVertices("C").contains("H"));
+    }
+
     @Test
     public void testOrderIndependence(){
         LWWElementGraph replicaOne = new LWWElementGraph();
@@ -276,6 +324,15 @@ public class LWWElementGraphTest {
         replicaTwo.addVertex("A", 1);
 
         assertEquals(replicaOne, replicaTwo);
+        assertEquals(replicaOne.hashCode(), replicaTwo.hashCode());
+
+        // Any further change should be reflected in both equality and hash code
+        replicaTwo.addVertex("E", 11);
+        assertNotEquals(replicaOne, replicaTwo);
+        assertNotEquals(replicaOne.hashCode(), replicaTwo.hashCode());
+        replicaOne.addVertex("E", 11);
+        assertEquals(replicaOne, replicaTwo);
+        assertEquals(replicaOne.hashCode(), replicaTwo.hashCode());
     }
 
     @Test
@@ -336,6 +393,304 @@ public class LWWElementGraphTest {
         assertEquals(0, replica.findPath("A", "  ").size());
     }
 
+    @Test
+    public void testProperties(){
+        LWWElementGraph replica = new LWWElementGraph();
+        replica.addVertex("A", 1);
+        replica.setVertexProperty("A", "type", "user", 2);
+        assertEquals("user", replica.getVertexProperty("A", "type"));
+
+        // Earlier write loses, later write wins
+        replica.setVertexProperty("A", "type", "admin", 1);
+        assertEquals("user", replica.getVertexProperty("A", "type"));
+        replica.setVertexProperty("A", "type", "admin", 3);
+        assertEquals("admin", replica.getVertexProperty("A", "type"));
+
+        // Concurrent writes resolve to the greater value regardless of their order
+        replica.setVertexProperty("A", "type", "guest", 3);
+        assertEquals("guest", replica.getVertexProperty("A", "type"));
+        replica.setVertexProperty("A", "type", "admin", 3);
+        assertEquals("guest", replica.getVertexProperty("A", "type"));
+
+        // Property of a vertex which is not created yet
+        replica.setVertexProperty("B", "type", "user", 1);
+        assertFalse(replica.checkVertexExists("B"));
+        assertEquals(-1, replica.getVertexCreationTimestamp("B"));
+        replica.addVertex("B", 2);
+        assertEquals("user", replica.getVertexProperty("B", "type"));
+        assertNull(replica.getVertexProperty("C", "type"));
+
+        // Edge properties and weights are set in both directions for undirected graphs
+        replica.addEdge("A", "B", 4);
+        replica.setEdgeProperty("A", "B", "kind", "follows", 4);
+        replica.setEdgeWeight("A", "B", 2.5, 4);
+        assertEquals("follows", replica.getEdgeProperty("B", "A", "kind"));
+        assertEquals(2.5, replica.getEdgeWeight("B", "A"), 0);
+        replica.setEdgeWeight("A", "B", -1, 5);
+        assertEquals(2.5, replica.getEdgeWeight("A", "B"), 0);
+        assertTrue(Double.isNaN(replica.getEdgeWeight("A", "C")));
+
+        // Properties are merged as LWW registers, merge stays commutative
+        LWWElementGraph replicaOne = new LWWElementGraph();
+        LWWElementGraph replicaTwo = new LWWElementGraph();
+        replicaOne.addVertex("A", 1);
+        replicaOne.setVertexProperty("A", "name", "one", 5);
+        replicaOne.setVertexProperty("A", "color", "red", 1);
+        replicaTwo.addVertex("A", 1);
+        replicaTwo.setVertexProperty("A", "name", "two", 4);
+        replicaTwo.setVertexProperty("A", "color", "blue", 2);
+        replicaTwo.addEdge("A", "B", 3);
+        replicaTwo.setEdgeWeight("A", "B", 7, 3);
+
+        LWWElementGraph mergedOne = new LWWElementGraph();
+        mergedOne.merge(replicaOne);
+        mergedOne.merge(replicaTwo);
+        LWWElementGraph mergedTwo = new LWWElementGraph();
+        mergedTwo.merge(replicaTwo);
+        mergedTwo.merge(replicaOne);
+        assertEquals(mergedOne, mergedTwo);
+        assertEquals(mergedOne.hashCode(), mergedTwo.hashCode());
+        assertEquals("one", mergedOne.getVertexProperty("A", "name"));
+        assertEquals("blue", mergedOne.getVertexProperty("A", "color"));
+        assertEquals(7, mergedOne.getEdgeWeight("B", "A"), 0);
+        assertNotEquals(replicaOne, mergedOne);
+
+        // An edge keeps its properties once it gets a weight, and the running hash follows it
+        LWWElementGraph weighted = new LWWElementGraph(true);
+        weighted.addEdge("A", "B", 1);
+        weighted.setEdgeProperty("A", "B", "kind", "follows", 1);
+        int unweightedHash = weighted.hashCode();
+        weighted.setEdgeWeight("A", "B", 3, 2);
+        assertEquals("follows", weighted.getEdgeProperty("A", "B", "kind"));
+        assertNotEquals(unweightedHash, weighted.hashCode());
+        LWWElementGraph copy = new LWWElementGraph(true);
+        copy.merge(weighted);
+        assertEquals(weighted, copy);
+        assertEquals(weighted.hashCode(), copy.hashCode());
+        assertEquals(3, copy.getEdgeWeight("A", "B"), 0);
+    }
+
+    @Test
+    public void testReachability(){
+        LWWElementGraph replica = new LWWElementGraph(true);
+        replica.addVertex("A", 1);
+        replica.addVertex("B", 2);
+        replica.addVertex("C", 3);
+        replica.addEdge("A", "B", 4);
+        assertTrue(replica.isReachable("A", "B"));
+        assertFalse(replica.isReachable("B", "A"));
+        assertTrue(replica.isReachable("C", "C"));
+        assertFalse(replica.isReachable("A", "D"));
+
+        // Vertices and edges added after the index is built are taken into account
+        replica.addVertex("D", 5);
+        replica.addEdge("B", "C", 6);
+        replica.addEdge("C", "D", 7);
+        assertTrue(replica.isReachable("A", "D"));
+        // C -> A closes a cycle
+        replica.addEdge("C", "A", 8);
+        assertTrue(replica.isReachable("B", "A"));
+        assertTrue(replica.isReachable("D", "D"));
+        assertFalse(replica.isReachable("D", "A"));
+
+        // Removal of a vertex invalidates its edges
+        replica.removeVertex("B", 9);
+        assertFalse(replica.isReachable("A", "C"));
+        assertFalse(replica.isReachable("A", "B"));
+        replica.addVertex("B", 10);
+        assertFalse(replica.isReachable("A", "C"));
+        replica.addEdge("A", "B", 11);
+        replica.addEdge("B", "C", 11);
+        assertTrue(replica.isReachable("A", "D"));
+
+        // Merge brings new edges
+        LWWElementGraph other = new LWWElementGraph(true);
+        other.addVertex("D", 5);
+        other.addVertex("E", 12);
+        other.addEdge("D", "E", 13);
+        replica.merge(other);
+        assertTrue(replica.isReachable("A", "E"));
+
+        // Many edges added after a query are applied at once on the next query
+        LWWElementGraph chain = new LWWElementGraph(true);
+        for(int i = 0; i < 100; i++){
+            chain.addVertex("V" + i, 1);
+        }
+        assertFalse(chain.isReachable("V0", "V99"));
+        for(int i = 1; i < 100; i++){
+            chain.addEdge("V" + (i - 1), "V" + i, 2);
+        }
+        assertTrue(chain.isReachable("V0", "V99"));
+        assertFalse(chain.isReachable("V99", "V0"));
+        chain.addEdge("V99", "V50", 3);
+        assertTrue(chain.isReachable("V99", "V60"));
+        assertFalse(chain.isReachable("V99", "V49"));
+
+        // Undirected graph
+        LWWElementGraph undirected = new LWWElementGraph();
+        undirected.addVertex("A", 1);
+        undirected.addVertex("B", 1);
+        undirected.addVertex("C", 1);
+        undirected.addEdge("A", "B", 2);
+        assertTrue(undirected.isReachable("B", "A"));
+        assertFalse(undirected.isReachable("A", "C"));
+        undirected.addEdge("C", "B", 3);
+        assertTrue(undirected.isReachable("A", "C"));
+        undirected.removeEdge("A", "B", 4);
+        assertFalse(undirected.isReachable("A", "C"));
+    }
+
+    @Test
+    public void testReachabilityMatchesPath(){
+        Random random = new Random(42);
+        for(boolean directed: new boolean[]{true, false}){
+            LWWElementGraph replica = new LWWElementGraph(directed);
+            for(int i = 0; i < 2000; i++){
+                String a = "V" + random.nextInt(30);
+                String b = "V" + random.nextInt(30);
+                int op = random.nextInt(10);
+                if(op < 2)
+                    replica.addVertex(a, i);
+                else if(op < 3)
+                    replica.removeVertex(a, i);
+                else if(op < 8)
+                    replica.addEdge(a, b, i);
+                else
+                    replica.removeEdge(a, b, i);
+                if(i % 5 == 0){
+                    assertEquals(!replica.findPath(a, b).isEmpty() && replica.checkVertexExists(b),
+                            replica.isReachable(a, b));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHubVertex(){
+        LWWElementGraph replica = new LWWElementGraph(true);
+        LWWElementGraph other = new LWWElementGraph(true);
+        replica.addVertex("hub", 1);
+        other.addVertex("hub", 1);
+        // Rows of the hub go through all representations: small array, table and shards
+        int degree = 20000;
+        for(int i = 0; i < degree; i++){
+            replica.addVertex("V" + i, 1);
+            other.addVertex("V" + i, 1);
+            replica.addEdge("hub", "V" + i, 2 + i);
+            int size = i + 1;
+            if(size == 8 || size == 9 || size == 16384 || size == 16385){
+                assertEquals(size, replica.getAdjacentVertices("hub").size());
+                assertEquals(2, replica.getEdgeCreationTimestamp("hub", "V0"));
+                assertEquals(2 + i, replica.getEdgeCreationTimestamp("hub", "V" + i));
+            }
+        }
+        for(int i = degree - 1; i >= 0; i--){
+            other.addEdge("hub", "V" + i, 2 + i);
+        }
+        assertEquals(degree, replica.getAdjacentVertices("hub").size());
+        assertEquals(2, replica.getEdgeCreationTimestamp("hub", "V0"));
+        assertEquals(-1, replica.getEdgeCreationTimestamp("hub", "V" + degree));
+        assertEquals(other, replica);
+
+        other.removeEdge("hub", "V7", degree + 2);
+        replica.merge(other);
+        assertEquals(other, replica);
+        assertEquals(degree - 1, replica.getAdjacentVertices("hub").size());
+        assertFalse(replica.getAdjacentVertices("hub").contains("V7"));
+    }
+
+    @Test
+    public void testShortestPath(){
+        LWWElementGraph replica = new LWWElementGraph(true);
+        for(String label: new String[]{"A", "B", "C", "D"}){
+            replica.addVertex(label, 1);
+        }
+        replica.addEdge("A", "B", 2);
+        replica.addEdge("B", "D", 2);
+        replica.addEdge("A", "C", 2);
+        replica.addEdge("C", "D", 2);
+
+        // Both paths have default weights, either is the shortest one
+        assertEquals(3, replica.findShortestPath("A", "D").size());
+
+        // Make A -> B -> D heavier than A -> C -> D
+        replica.setEdgeWeight("A", "B", 5, 3);
+        List<String> path = replica.findShortestPath("A", "D");
+        assertEquals(Arrays.asList("A", "C", "D"), path);
+
+        // Direct but heavy edge is not the shortest path
+        replica.addEdge("A", "D", 4);
+        replica.setEdgeWeight("A", "D", 10, 4);
+        assertEquals(Arrays.asList("A", "C", "D"), replica.findShortestPath("A", "D"));
+
+        // Removing C makes A -> B -> D the shortest path, then removing B leaves the direct edge
+        replica.removeVertex("C", 5);
+        assertEquals(Arrays.asList("A", "B", "D"), replica.findShortestPath("A", "D"));
+        replica.removeVertex("B", 5);
+        assertEquals(Arrays.asList("A", "D"), replica.findShortestPath("A", "D"));
+
+        assertEquals(1, replica.findShortestPath("A", "A").size());
+        assertEquals(0, replica.findShortestPath("D", "A").size());
+        assertEquals(0, replica.findShortestPath("A", "Z").size());
+    }
+
+    @Test
+    public void testColdStorage() throws IOException {
+        LWWElementGraph tiered = new LWWElementGraph();
+        LWWElementGraph inMemory = new LWWElementGraph();
+        for(LWWElementGraph replica: Arrays.asList(tiered, inMemory)){
+            for(int i = 0; i < 100; i++){
+                replica.addVertex("V" + i, 1);
+                replica.setVertexProperty("V" + i, "index", String.valueOf(i), 1);
+            }
+            for(int i = 1; i < 100; i++){
+                replica.addEdge("V" + (i - 1), "V" + i, 2);
+                replica.setEdgeWeight("V" + (i - 1), "V" + i, i, 2);
+            }
+            replica.removeVertex("V50", 3);
+        }
+
+        Path directory = Files.createTempDirectory("lww-cold");
+        tiered.enableColdStorage(directory, 10);
+        assertTrue(tiered.isColdStorageEnabled());
+        assertEquals(90, tiered.getColdLabelCount());
+
+        // Cold elements are loaded back transparently
+        assertEquals(inMemory, tiered);
+        assertEquals(inMemory.hashCode(), tiered.hashCode());
+        assertEquals(50, tiered.findPath("V0", "V49").size());
+        assertEquals(0, tiered.findPath("V0", "V99").size());
+        assertEquals("7", tiered.getVertexProperty("V7", "index"));
+        assertEquals(8, tiered.getEdgeWeight("V8", "V7"), 0);
+        assertFalse(tiered.checkVertexExists("V50"));
+        assertEquals(3, tiered.getVertexRemovalTimestamp("V50"));
+        assertEquals(90, tiered.getColdLabelCount());
+
+        // Updates to cold elements and merges both ways
+        tiered.addVertex("V50", 4);
+        tiered.addEdge("V49", "V50", 4);
+        tiered.addEdge("V50", "V51", 4);
+        assertEquals(100, tiered.findPath("V0", "V99").size());
+
+        LWWElementGraph other = new LWWElementGraph();
+        other.addVertex("V50", 4);
+        other.addEdge("V49", "V50", 4);
+        other.addEdge("V50", "V51", 4);
+        inMemory.merge(other);
+        assertEquals(inMemory, tiered);
+
+        LWWElementGraph merged = new LWWElementGraph();
+        merged.merge(tiered);
+        assertEquals(inMemory, merged);
+        tiered.merge(tiered);
+        assertEquals(inMemory, tiered);
+
+        tiered.disableColdStorage();
+        assertEquals(0, tiered.getColdLabelCount());
+        assertEquals(inMemory, tiered);
+        Files.delete(directory);
+    }
+
     @Test
     public void testMerge(){
         LWWElementGraph replicaOne = new LWWElementGraph();
@@ -408,6 +763,7 @@ public class LWWElementGraphTest {
 
         replicaOne.merge(replicaTwo);
         assertEquals(expected, replicaOne);
+        assertEquals(expected.hashCode(), replicaOne.hashCode());
 
         // Test commutativity
         // Reset replicaOne first
@@ -426,9 +782,131 @@ public class LWWElementGraphTest {
         // Test that merge(merge(f)) = merge(f) / idempotency
         replicaTwo.merge(replicaTwo);
         assertEquals(expected, replicaTwo);
+        assertEquals(expected.hashCode(), replicaTwo.hashCode());
         System.out.println(expected);
     }
 
+    @Test
+    public void testMergeWithChanges(){
+        LWWElementGraph replica = new LWWElementGraph();
+        replica.addVertex("A", 1);
+        replica.addVertex("B", 2);
+        replica.addVertex("C", 3);
+        replica.addEdge("A", "B", 4);
+
+        LWWElementGraph other = new LWWElementGraph();
+        other.addVertex("A", 1);
+        other.addVertex("B", 2);
+        other.removeVertex("C", 5);
+        other.addVertex("D", 6);
+        other.addEdge("A", "B", 4);
+        other.setEdgeWeight("A", "B", 3.0, 7);
+
+        ChangeSet changes = replica.mergeWithChanges(other);
+        // C deactivated, D activated, and weights of A-B and B-A changed
+        assertEquals(4, changes.size());
+        for(int i = 0; i < changes.size(); i++){
+            if(changes.isVertex(i) && changes.getLabel(i).equals("C")){
+                assertEquals(ChangeSet.REMOVED | ChangeSet.DEACTIVATED, changes.getFlags(i));
+                assertEquals(5, changes.getRemovalTimestamp(i));
+            } else if(changes.isVertex(i)){
+                assertEquals("D", changes.getLabel(i));
+                assertEquals(ChangeSet.CREATED | ChangeSet.ACTIVATED, changes.getFlags(i));
+                assertEquals(6, changes.getCreationTimestamp(i));
+            } else {
+                assertEquals(ChangeSet.PROPERTIES, changes.getFlags(i));
+                assertTrue(changes.hasFlag(i, ChangeSet.PROPERTIES));
+            }
+        }
+
+        // Merging the same graph again changes nothing
+        assertTrue(replica.mergeWithChanges(other).isEmpty());
+    }
+
+    @Test
+    public void testPartialReplication(){
+        LWWElementGraph replica = new LWWElementGraph(true);
+        replica.addVertex("eu:A", 1);
+        replica.addVertex("eu:B", 1);
+        replica.addVertex("us:C", 1);
+        replica.addEdge("eu:A", "eu:B", 2);
+        replica.addEdge("eu:B", "us:C", 2);
+        replica.addEdge("us:C", "eu:A", 2);
+        replica.removeVertex("eu:B", 3);
+
+        LWWElementGraph eu = replica.extract(LabelFilter.prefix("eu:"));
+        assertEquals(2, eu.getVertexCount());
+        assertEquals(2, eu.getEdgeCount());
+        assertFalse(eu.checkVertexExists("us:C"));
+        assertEquals(3, eu.getVertexRemovalTimestamp("eu:B"));
+        assertEquals(2, eu.getEdgeCreationTimestamp("eu:B", "us:C"));
+        assertEquals(-1, eu.getEdgeCreationTimestamp("us:C", "eu:A"));
+
+        // Merging the rest of the graph brings in everything else
+        LWWElementGraph other = new LWWElementGraph(true);
+        other.merge(replica, LabelFilter.of(label -> !label.startsWith("eu:")));
+        other.merge(eu);
+        assertEquals(replica, other);
+
+        // Hash buckets partition the graph
+        LWWElementGraph merged = new LWWElementGraph(true);
+        for(int bucket = 0; bucket < 3; bucket++){
+            merged.merge(replica.extract(LabelFilter.hashBucket(bucket, 3)));
+        }
+        assertEquals(replica, merged);
+
+        // Filtered merge updates existing elements as well
+        replica.addVertex("eu:B", 4);
+        replica.addVertex("us:C", 4);
+        eu.merge(replica, LabelFilter.prefix("eu:"));
+        assertTrue(eu.checkVertexExists("eu:B"));
+        assertFalse(eu.checkVertexExists("us:C"));
+    }
+
+    @Test
+    public void testLabelIndex(){
+        LWWElementGraph indexed = new LWWElementGraph();
+        LWWElementGraph plain = new LWWElementGraph();
+        indexed.addVertex("t1:user:1", 1);
+        indexed.enableLabelIndex();
+        assertTrue(indexed.isLabelIndexEnabled());
+        for(LWWElementGraph replica: Arrays.asList(indexed, plain)){
+            replica.addVertex("t1:user:1", 1);
+            replica.addVertex("t1:user:2", 1);
+            replica.addVertex("t1:order:1", 1);
+            replica.addVertex("t2:user:1", 1);
+            replica.addVertex("t1:user:3", 1);
+            replica.removeVertex("t1:user:3", 2);
+            // Edge from a vertex which is not created yet
+            replica.addEdge("t1:user:4", "t1:user:1", 3);
+        }
+
+        for(LWWElementGraph replica: Arrays.asList(indexed, plain)){
+            assertEquals(Arrays.asList("t1:user:1", "t1:user:2"), replica.getVerticesWithPrefix("t1:user:"));
+            assertEquals(Arrays.asList("t1:order:1", "t1:user:1", "t1:user:2"),
+                    replica.getVerticesWithPrefix("t1:"));
+            assertEquals(Arrays.asList("t1:user:2", "t2:user:1"),
+                    replica.getVerticesInRange("t1:user:2", "t2:user:2"));
+            assertEquals(0, replica.getVerticesWithPrefix("t3:").size());
+
+            // Pagination skips removed vertices, and pages are full
+            assertEquals(Arrays.asList("t1:order:1", "t1:user:1"), replica.getVertices(null, 2));
+            assertEquals(Arrays.asList("t1:user:2", "t2:user:1"), replica.getVertices("t1:user:1", 2));
+            assertEquals(0, replica.getVertices("t2:user:1", 2).size());
+        }
+
+        // Merge keeps the index up to date, and prefix extracts go through it
+        LWWElementGraph other = new LWWElementGraph();
+        other.addVertex("t1:user:4", 3);
+        indexed.merge(other);
+        assertEquals(Arrays.asList("t1:user:1", "t1:user:2", "t1:user:4"),
+                indexed.getVerticesWithPrefix("t1:user:"));
+        plain.merge(other);
+        assertEquals(plain.extract(LabelFilter.prefix("t1:user:")),
+                indexed.extract(LabelFilter.prefix("t1:user:")));
+        assertEquals(1, indexed.extract(LabelFilter.prefix("t1:user:")).getAdjacentVertices("t1:user:4").size());
+    }
+
     @Test
     public void testDirectedGraph(){
         LWWElementGraph directed = new LWWElementGraph(true);